@@ -0,0 +1,18 @@
+package com.bds.awss3interface.common;
+
+/**
+ * Receives the entries of a folder listing one at a time, as they are read from storage.
+ * <p>
+ * Entries are handed over as plain values rather than {@link com.bds.awss3interface.model.Resource}
+ * objects, so a sink that writes them straight out needs no per-entry allocation of its own.
+ */
+@FunctionalInterface
+public interface ListingSink {
+
+    /**
+     * @param key  the S3 key of the entry (folders end in "/")
+     * @param type 0 for file, 1 for folder
+     * @param size content length in bytes, 0 for folders
+     */
+    void accept(String key, int type, long size);
+}
@@ -5,6 +5,9 @@ import com.bds.awss3interface.model.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.net.URL;
+import java.time.Duration;
+import java.util.function.LongConsumer;
 
 public interface StorageService {
     /**
@@ -16,6 +19,19 @@ public interface StorageService {
      */
     ListResult<Resource> listFolder(Resource parent, String cursor);
 
+    /**
+     * Lists the contents of a given parent resource like {@link #listFolder(Resource, String)}, but hands each
+     * entry to the sink as soon as it is read instead of collecting a result list. Large pages are fetched
+     * from the backend in several requests.
+     *
+     * @param parent     The parent folder resource (null = root).
+     * @param cursor     The pagination cursor from a previous call (null if first call).
+     * @param maxEntries The maximum number of entries to list.
+     * @param sink       Receives the entries in listing order.
+     * @return The cursor for the next page, or null if the listing is complete.
+     */
+    String streamFolder(Resource parent, String cursor, int maxEntries, ListingSink sink);
+
     /**
      * Retrieves metadata for a specific resource by its ID (key).
      *
@@ -26,12 +42,21 @@ public interface StorageService {
 
     /**
      * Downloads a resource (if it is a file) and returns a local File reference.
+     * The file is leased from a managed spool and must be handed back via {@link #releaseFile(File)}.
      *
      * @param resource The resource to download (cannot be null, must be file).
      * @return A File containing the downloaded contents.
      */
     File getAsFile(Resource resource);
 
+    /**
+     * Signals that a File returned by {@link #getAsFile(Resource)} is no longer needed,
+     * so its space can be reclaimed.
+     *
+     * @param file The file returned by {@link #getAsFile(Resource)}.
+     */
+    void releaseFile(File file);
+
 
     /**
      * Uploads a file to S3/MinIO at the given key.
@@ -40,4 +65,53 @@ public interface StorageService {
      * @param file the multipart file received from the client
      */
     void uploadFile(String key, MultipartFile file);
+
+    /**
+     * Uploads a local file to S3/MinIO at the given key, reporting progress as bytes are sent.
+     *
+     * @param key              the S3 object key (e.g. "uploads/file.txt")
+     * @param file             the local file to upload
+     * @param contentType      the Content-Type to store with the object (may be null)
+     * @param progressListener receives the number of bytes sent since the previous call
+     */
+    void uploadFile(String key, File file, String contentType, LongConsumer progressListener);
+
+    /**
+     * Copies a file, or every object under a folder, to a new key inside the bucket.
+     * The copy happens server-side; no data passes through this service.
+     *
+     * @param sourceId the key of the file or folder (ending in "/") to copy
+     * @param targetId the destination key; must also end in "/" when copying a folder
+     * @return The number of objects copied.
+     */
+    int copy(String sourceId, String targetId);
+
+    /**
+     * Moves a file, or every object under a folder, to a new key inside the bucket.
+     * Sources are deleted only after their copies have succeeded.
+     *
+     * @param sourceId the key of the file or folder (ending in "/") to move
+     * @param targetId the destination key; must also end in "/" when moving a folder
+     * @return The number of objects moved.
+     */
+    int move(String sourceId, String targetId);
+
+    /**
+     * Issues a short-lived URL that lets a client download a file straight from the bucket.
+     *
+     * @param resource The file resource to expose (cannot be null, must be file).
+     * @param expiry   How long the URL stays valid.
+     * @return A presigned GET URL.
+     */
+    URL generateDownloadUrl(Resource resource, Duration expiry);
+
+    /**
+     * Issues a short-lived URL that lets a client upload a file straight to the bucket.
+     *
+     * @param key         the S3 object key the client is allowed to write
+     * @param contentType the Content-Type the client must send (null = any)
+     * @param expiry      how long the URL stays valid
+     * @return A presigned PUT URL.
+     */
+    URL generateUploadUrl(String key, String contentType, Duration expiry);
 }
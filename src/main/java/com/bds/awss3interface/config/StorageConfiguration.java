@@ -1,57 +1,205 @@
 package com.bds.awss3interface.config;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.HeadBucketRequest;
 import com.bds.awss3interface.common.StorageService;
+import com.bds.awss3interface.service.resilience.CircuitBreaker;
+import com.bds.awss3interface.service.resilience.ResilientStorageService;
+import com.bds.awss3interface.service.routing.RoutingStorageService;
+import com.bds.awss3interface.service.routing.StorageBackend;
+import com.bds.awss3interface.service.routing.StorageBackends;
+import com.bds.awss3interface.service.s3.S3ClientMetrics;
+import com.bds.awss3interface.service.s3.S3ObjectCopier;
 import com.bds.awss3interface.service.s3.S3StorageService;
+import com.bds.awss3interface.service.spool.DownloadSpool;
+import com.bds.awss3interface.service.upload.UploadJobService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 @RequiredArgsConstructor
+@EnableConfigurationProperties(StorageProperties.class)
 public class StorageConfiguration {
 
-    @Value("${s3.endpoint}")
-    private String s3Endpoint;
+    private final StorageProperties storageProperties;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${s3.copy.multipart-threshold:67108864}")
+    private long copyMultipartThreshold;
+
+    @Value("${s3.copy.part-size:67108864}")
+    private long copyPartSize;
+
+    @Value("${s3.copy.object-concurrency:16}")
+    private int copyObjectConcurrency;
+
+    @Value("${s3.copy.part-concurrency:8}")
+    private int copyPartConcurrency;
+
+    @Value("${s3.resilience.failure-threshold:5}")
+    private int circuitFailureThreshold;
+
+    @Value("${s3.resilience.open-duration:PT10S}")
+    private Duration circuitOpenDuration;
+
+    @Value("${s3.resilience.stale-cache-size:10000}")
+    private int staleCacheSize;
+
+    @Value("${s3.resilience.max-stale:PT1H}")
+    private Duration maxStale;
+
+    @Value("${s3.spool.directory:${java.io.tmpdir}/s3-download-spool}")
+    private Path downloadSpoolDirectory;
+
+    @Value("${s3.spool.max-bytes:1073741824}")
+    private long downloadSpoolMaxBytes;
 
-    @Value("${s3.region}")
-    private String s3Region;
+    @Value("${s3.spool.reuse:false}")
+    private boolean downloadSpoolReuse;
 
-    @Value("${s3.access-key}")
-    private String s3AccessKey;
+    @Value("${s3.spool.reuse-ttl:PT1M}")
+    private Duration downloadSpoolReuseTtl;
 
-    @Value("${s3.secret-key}")
-    private String s3SecretKey;
+    @Value("${s3.spool.acquire-timeout:PT10S}")
+    private Duration downloadSpoolAcquireTimeout;
 
-    @Value("${s3.bucket}")
-    private String s3Bucket;
+    @Value("${s3.spool.max-lease:PT30M}")
+    private Duration downloadSpoolMaxLease;
+
+    @Value("${s3.spool.reaper-interval:PT1M}")
+    private Duration downloadSpoolReaperInterval;
+
+    @Value("${s3.upload.async.spool-directory:${java.io.tmpdir}/s3-upload-spool}")
+    private Path uploadSpoolDirectory;
+
+    @Value("${s3.upload.async.workers:4}")
+    private int uploadWorkers;
+
+    @Value("${s3.upload.async.queue-capacity:16}")
+    private int uploadQueueCapacity;
+
+    @Value("${s3.upload.async.max-attempts:3}")
+    private int uploadMaxAttempts;
+
+    @Value("${s3.upload.async.retry-backoff:PT1S}")
+    private Duration uploadRetryBackoff;
+
+    @Value("${s3.upload.async.job-retention:PT1H}")
+    private Duration uploadJobRetention;
 
     /**
-     * Create and configure the AmazonS3 client.
+     * Create and configure the AmazonS3 client of the default backend.
      */
     @Bean
     public AmazonS3 amazonS3Client() {
-        return AmazonS3ClientBuilder.standard()
-                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(s3Endpoint, s3Region))
-                .withCredentials(new AWSStaticCredentialsProvider(
-                        new BasicAWSCredentials(s3AccessKey, s3SecretKey)))
-                .withPathStyleAccessEnabled(true) // needed for MinIO; for AWS S3 you might remove it
-                .build();
+        return buildClient(StorageProperties.DEFAULT_BACKEND, storageProperties.defaultBackend());
+    }
+
+    /**
+     * Create the quota-bound spool that downloaded files are written to.
+     * It is shared by all backends, since they all draw on the same local disk.
+     */
+    @Bean
+    public DownloadSpool downloadSpool() {
+        return new DownloadSpool(downloadSpoolDirectory, downloadSpoolMaxBytes, downloadSpoolReuse,
+                downloadSpoolReuseTtl, downloadSpoolAcquireTimeout, downloadSpoolMaxLease, downloadSpoolReaperInterval);
+    }
+
+    /**
+     * Create one backend per configured bucket: the default one plus every {@code s3.backends.<name>}.
+     * Each gets its own client, connection pool, copy pools and circuit breaker.
+     */
+    @Bean
+    public StorageBackends storageBackends(AmazonS3 amazonS3Client, DownloadSpool downloadSpool) {
+        StorageBackend defaultBackend = createBackend(StorageProperties.DEFAULT_BACKEND,
+                storageProperties.defaultBackend(), amazonS3Client, downloadSpool);
+
+        List<StorageBackend> backends = new ArrayList<>();
+        backends.add(defaultBackend);
+        for (String name : storageProperties.getBackends().keySet()) {
+            StorageProperties.Backend settings = storageProperties.effectiveBackend(name);
+            backends.add(createBackend(name, settings, buildClient(name, settings), downloadSpool));
+        }
+        return new StorageBackends(defaultBackend, backends);
     }
 
     /**
      * Create the S3-based implementation of StorageService.
      * <p>
+     * Requests are routed between the configured backends by key prefix.
      * If you want to switch to a different strategy (e.g., local disk),
      * you can change this bean to return something else.
      */
     @Bean
-    public StorageService storageService(AmazonS3 amazonS3Client) {
-        return new S3StorageService(amazonS3Client, s3Bucket);
+    public StorageService storageService(StorageBackends storageBackends) {
+        return new RoutingStorageService(storageBackends);
+    }
+
+    /**
+     * Create the pipeline that spools uploads locally and drains them to storage in the background.
+     * While a backend's circuit is open, retries wait at least until its next probe.
+     */
+    @Bean
+    public UploadJobService uploadJobService() {
+        return new UploadJobService(uploadSpoolDirectory, uploadWorkers, uploadQueueCapacity,
+                uploadMaxAttempts, uploadRetryBackoff, circuitOpenDuration, uploadJobRetention);
+    }
+
+    private StorageBackend createBackend(String name, StorageProperties.Backend settings, AmazonS3 client,
+                                         DownloadSpool downloadSpool) {
+        S3ObjectCopier copier = new S3ObjectCopier(client, copyMultipartThreshold, copyPartSize,
+                copyObjectConcurrency, copyPartConcurrency);
+        StorageService s3Service = new S3StorageService(client, settings.getBucket(), downloadSpool, copier);
+
+        Runnable ping = () -> client.headBucket(new HeadBucketRequest(settings.getBucket()));
+        CircuitBreaker circuitBreaker = new CircuitBreaker(name, circuitFailureThreshold, circuitOpenDuration, ping);
+        Gauge.builder("s3.circuit.open", circuitBreaker, breaker -> breaker.isOpen() ? 1 : 0)
+                .description("Whether the backend's circuit breaker is open (1) or closed (0)")
+                .tag("backend", name)
+                .register(meterRegistry);
+        StorageService service = new ResilientStorageService(s3Service, circuitBreaker, name,
+                staleCacheSize, maxStale, meterRegistry);
+
+        boolean ownsClient = !StorageProperties.DEFAULT_BACKEND.equals(name); // the default client is a bean
+        return new StorageBackend(name, settings.getBucket(), settings.getKeyPrefix(), service, ping, () -> {
+            circuitBreaker.shutdown();
+            copier.shutdown();
+            if (ownsClient) {
+                client.shutdown();
+            }
+        });
+    }
+
+    private AmazonS3 buildClient(String name, StorageProperties.Backend settings) {
+        ClientConfiguration clientConfiguration = new ClientConfiguration()
+                .withMaxConnections(settings.getMaxConnections())
+                .withConnectionTimeout((int) settings.getConnectionTimeout().toMillis())
+                .withSocketTimeout((int) settings.getSocketTimeout().toMillis())
+                .withTcpKeepAlive(true);
+
+        return AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(settings.getEndpoint(), settings.getRegion()))
+                .withCredentials(new AWSStaticCredentialsProvider(
+                        new BasicAWSCredentials(settings.getAccessKey(), settings.getSecretKey())))
+                .withPathStyleAccessEnabled(settings.getPathStyleAccess())
+                .withClientConfiguration(clientConfiguration)
+                .withRequestHandlers(new S3ClientMetrics(meterRegistry, name))
+                .build();
     }
 }
@@ -0,0 +1,96 @@
+package com.bds.awss3interface.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * S3 connection settings, bound from {@code s3.*}.
+ * <p>
+ * The top-level {@code s3.endpoint}, {@code s3.bucket}, ... describe the default backend.
+ * Additional named backends go under {@code s3.backends.<name>.*}; any setting they leave out
+ * is inherited from the top level, so a second bucket on the same endpoint only needs
+ * {@code bucket} (and usually {@code key-prefix}).
+ */
+@Data
+@ConfigurationProperties(prefix = "s3")
+public class StorageProperties {
+
+    public static final String DEFAULT_BACKEND = "default";
+
+    private String endpoint;
+    private String region;
+    private String accessKey;
+    private String secretKey;
+    private String bucket;
+    private boolean pathStyleAccess = true; // needed for MinIO; for AWS S3 you might disable it
+    private int maxConnections = 50;
+    private Duration connectionTimeout = Duration.ofSeconds(10);
+    private Duration socketTimeout = Duration.ofSeconds(50);
+
+    private Map<String, Backend> backends = new LinkedHashMap<>();
+
+    @Data
+    public static class Backend {
+        private String endpoint;
+        private String region;
+        private String accessKey;
+        private String secretKey;
+        private String bucket;
+        private Boolean pathStyleAccess;
+        private Integer maxConnections;
+        private Duration connectionTimeout;
+        private Duration socketTimeout;
+
+        /**
+         * Keys starting with this prefix are routed to this backend when no bucket is named explicitly.
+         */
+        private String keyPrefix;
+    }
+
+    /**
+     * The default backend described by the top-level settings.
+     */
+    public Backend defaultBackend() {
+        Backend backend = new Backend();
+        backend.setEndpoint(endpoint);
+        backend.setRegion(region);
+        backend.setAccessKey(accessKey);
+        backend.setSecretKey(secretKey);
+        backend.setBucket(bucket);
+        backend.setPathStyleAccess(pathStyleAccess);
+        backend.setMaxConnections(maxConnections);
+        backend.setConnectionTimeout(connectionTimeout);
+        backend.setSocketTimeout(socketTimeout);
+        return backend;
+    }
+
+    /**
+     * A named backend with every unset field filled in from the top-level settings.
+     */
+    public Backend effectiveBackend(String name) {
+        Backend configured = backends.get(name);
+        if (configured == null) {
+            throw new IllegalArgumentException("Unknown storage backend: " + name);
+        }
+        Backend backend = new Backend();
+        backend.setEndpoint(orDefault(configured.getEndpoint(), endpoint));
+        backend.setRegion(orDefault(configured.getRegion(), region));
+        backend.setAccessKey(orDefault(configured.getAccessKey(), accessKey));
+        backend.setSecretKey(orDefault(configured.getSecretKey(), secretKey));
+        backend.setBucket(orDefault(configured.getBucket(), bucket));
+        backend.setPathStyleAccess(orDefault(configured.getPathStyleAccess(), pathStyleAccess));
+        backend.setMaxConnections(orDefault(configured.getMaxConnections(), maxConnections));
+        backend.setConnectionTimeout(orDefault(configured.getConnectionTimeout(), connectionTimeout));
+        backend.setSocketTimeout(orDefault(configured.getSocketTimeout(), socketTimeout));
+        backend.setKeyPrefix(configured.getKeyPrefix());
+        return backend;
+    }
+
+    private static <T> T orDefault(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+}
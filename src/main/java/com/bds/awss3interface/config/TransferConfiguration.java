@@ -0,0 +1,21 @@
+package com.bds.awss3interface.config;
+
+import com.bds.awss3interface.service.throttle.TransferThrottle;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(TransferProperties.class)
+public class TransferConfiguration {
+
+    /**
+     * Create the per-user bandwidth and concurrency limiter applied to downloads and uploads
+     * that pass through the application.
+     */
+    @Bean
+    public TransferThrottle transferThrottle(TransferProperties transferProperties, MeterRegistry meterRegistry) {
+        return new TransferThrottle(transferProperties, meterRegistry);
+    }
+}
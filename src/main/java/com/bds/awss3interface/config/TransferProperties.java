@@ -0,0 +1,47 @@
+package com.bds.awss3interface.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-role transfer limits, bound from {@code s3.transfer.*}.
+ * <p>
+ * Role names match those granted in {@link SecurityConfiguration} (e.g. ADMIN, USER).
+ * A principal with several roles gets the most permissive of their limits; a principal
+ * with no configured role falls back to {@link #defaults}.
+ */
+@Data
+@ConfigurationProperties(prefix = "s3.transfer")
+public class TransferProperties {
+
+    /**
+     * Transfers allowed at once across all users; waiting transfers are admitted in arrival order.
+     */
+    private int globalMaxConcurrent = 64;
+
+    /**
+     * How long a transfer may wait for a slot before it is refused with 503.
+     */
+    private Duration acquireTimeout = Duration.ofSeconds(30);
+
+    private Limit defaults = new Limit();
+
+    private Map<String, Limit> roles = new LinkedHashMap<>();
+
+    @Data
+    public static class Limit {
+        /**
+         * Sustained byte rate shared by all of one user's transfers; 0 means unlimited.
+         */
+        private long bytesPerSecond = 0;
+
+        /**
+         * Transfers one user may run at once.
+         */
+        private int maxConcurrent = 4;
+    }
+}
@@ -0,0 +1,23 @@
+package com.bds.awss3interface.config;
+
+import com.bds.awss3interface.common.StorageService;
+import com.bds.awss3interface.service.routing.StorageBackends;
+import com.bds.awss3interface.service.warmup.StorageWarmup;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+@Configuration
+@EnableConfigurationProperties(WarmupProperties.class)
+public class WarmupConfiguration {
+
+    /**
+     * Create the startup warm-up, which runs before the application reports itself ready.
+     */
+    @Bean
+    public StorageWarmup storageWarmup(StorageService storageService, StorageBackends storageBackends,
+                                       PasswordEncoder passwordEncoder, WarmupProperties warmupProperties) {
+        return new StorageWarmup(storageService, storageBackends, passwordEncoder, warmupProperties);
+    }
+}
@@ -0,0 +1,49 @@
+package com.bds.awss3interface.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Startup warm-up settings, bound from {@code s3.warmup.*}.
+ * <p>
+ * Prefixes and keys are routed like ordinary requests, so a hot prefix such as {@code archive/reports/}
+ * warms the backend that serves it.
+ */
+@Data
+@ConfigurationProperties(prefix = "s3.warmup")
+public class WarmupProperties {
+
+    /**
+     * Checked at runtime rather than via a bean condition, so the flag still works with a prebuilt AOT image.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Connections to open in parallel per backend; keep it at or below the backend's {@code max-connections}.
+     */
+    private int connections = 8;
+
+    /**
+     * Folders whose first page is listed, which also preloads their entries into the metadata cache.
+     */
+    private List<String> prefixes = new ArrayList<>();
+
+    /**
+     * Individual files whose metadata is fetched.
+     */
+    private List<String> keys = new ArrayList<>();
+
+    /**
+     * Password checks run so the first logins don't pay for warming up the password encoder.
+     */
+    private int passwordChecks = 3;
+
+    /**
+     * Upper bound for the whole warm-up; whatever has not finished by then is abandoned.
+     */
+    private Duration timeout = Duration.ofSeconds(60);
+}
@@ -0,0 +1,92 @@
+package com.bds.awss3interface.controller;
+
+import com.bds.awss3interface.common.ListingSink;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes a folder listing as JSON while it is being read, in the same shape as a serialised
+ * {@link com.bds.awss3interface.model.ListResult}: {@code {"resources":[{"id","name","type","size"}...],"cursor"}}.
+ * <p>
+ * Nothing is written until the first entry (or {@link #finish(String)}) arrives, so an error on the first
+ * backend request can still be answered with a regular error response. Entry names are copied into a reused
+ * buffer instead of being cut out of the key as new strings.
+ */
+public class ListingJsonWriter implements ListingSink {
+
+    private final JsonFactory jsonFactory;
+    private final OutputStream out;
+    private JsonGenerator generator;
+    private char[] nameBuffer = new char[256];
+    private int count;
+
+    public ListingJsonWriter(JsonFactory jsonFactory, OutputStream out) {
+        this.jsonFactory = jsonFactory;
+        this.out = out;
+    }
+
+    @Override
+    public void accept(String key, int type, long size) {
+        try {
+            JsonGenerator json = start();
+            json.writeStartObject();
+            json.writeStringField("id", key);
+            json.writeFieldName("name");
+            writeName(json, key);
+            json.writeNumberField("type", type);
+            json.writeNumberField("size", size);
+            json.writeEndObject();
+            count++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write listing entry", e);
+        }
+    }
+
+    /**
+     * Closes the resource array, writes the cursor and flushes. The output stream itself is left open.
+     *
+     * @param cursor the cursor for the next page, or null
+     */
+    public void finish(String cursor) throws IOException {
+        JsonGenerator json = start();
+        json.writeEndArray();
+        json.writeStringField("cursor", cursor);
+        json.writeEndObject();
+        json.close();
+    }
+
+    /**
+     * @return The number of entries written so far.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    private JsonGenerator start() throws IOException {
+        if (generator == null) {
+            generator = jsonFactory.createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("resources");
+        }
+        return generator;
+    }
+
+    /**
+     * Writes the last path segment of the key, ignoring a trailing "/" (same rule as the resource name).
+     */
+    private void writeName(JsonGenerator json, String key) throws IOException {
+        int end = key.endsWith("/") ? key.length() - 1 : key.length();
+        int begin = end > 0 ? key.lastIndexOf('/', end - 1) + 1 : 0;
+        int length = end - begin;
+        if (nameBuffer.length < length) {
+            nameBuffer = new char[length];
+        }
+        key.getChars(begin, end, nameBuffer, 0);
+        json.writeString(nameBuffer, 0, length);
+    }
+}
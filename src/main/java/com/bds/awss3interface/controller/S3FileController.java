@@ -2,26 +2,47 @@ package com.bds.awss3interface.controller;
 
 import com.bds.awss3interface.common.StorageService;
 import com.bds.awss3interface.exception.S3StorageException;
+import com.bds.awss3interface.exception.StorageBusyException;
+import com.bds.awss3interface.exception.StorageUnavailableException;
 import com.bds.awss3interface.model.ListResult;
+import com.bds.awss3interface.model.PresignedUrl;
 import com.bds.awss3interface.model.Resource;
+import com.bds.awss3interface.model.UploadJob;
+import com.bds.awss3interface.service.routing.StorageBackends;
+import com.bds.awss3interface.service.throttle.TransferDirection;
+import com.bds.awss3interface.service.throttle.TransferPermit;
+import com.bds.awss3interface.service.throttle.TransferThrottle;
+import com.bds.awss3interface.service.upload.UploadJobService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Controller exposing endpoints for AWS S3 file and folder operations.
@@ -38,11 +59,36 @@ public class S3FileController {
 
     private final StorageService s3StorageService;
 
+    private final StorageBackends storageBackends;
+
+    private final UploadJobService uploadJobService;
+
+    private final TransferThrottle transferThrottle;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${s3.presign.expiry:PT5M}")
+    private Duration presignExpiry;
+
+    /**
+     * Files at least this large are answered with a redirect to a presigned URL
+     * instead of being streamed through the application; a negative value disables it.
+     */
+    @Value("${s3.presign.redirect-threshold:-1}")
+    private long redirectThreshold;
+
+    /**
+     * Upper bound for the page size of streamed listings.
+     */
+    @Value("${s3.listing.max-page-size:10000}")
+    private int maxListingPageSize;
+
     /**
      * Lists the contents of a specific folder.
      *
      * @param folderId The ID (S3 key) of the folder to list.
      * @param cursor   Optional pagination token to retrieve the next set of results.
+     * @param bucket   Optional backend or bucket name.
      * @return A {@link ListResult} containing the folder contents and a continuation token for pagination.
      */
     @GetMapping("/list/folder")
@@ -50,51 +96,118 @@ public class S3FileController {
     @Operation(summary = "List folder contents", security = @SecurityRequirement(name = "basicAuth"))
     public ListResult<Resource> listFolder(
             @RequestParam @Parameter(description = "The S3 key of the folder to list") String folderId,
-            @RequestParam(required = false) @Parameter(description = "Pagination cursor for retrieving the next set of results") String cursor) {
+            @RequestParam(required = false) @Parameter(description = "Pagination cursor for retrieving the next set of results") String cursor,
+            @RequestParam(required = false) @Parameter(description = "Named backend or bucket to use; by default the key prefix decides") String bucket) {
         logger.info("Listing contents of folder: {} with cursor: {}", folderId, cursor);
-        Resource folderResource = s3StorageService.getResource(folderId);
-        return s3StorageService.listFolder(folderResource, cursor);
+        StorageService storage = storageFor(bucket);
+        Resource folderResource = storage.getResource(folderId);
+        return storage.listFolder(folderResource, cursor);
+    }
+
+    /**
+     * Lists the contents of a specific folder, writing each entry to the response as it is read.
+     * The response has the same shape as {@link #listFolder}, but pages can be much larger since
+     * no result list is built in memory. If the backend fails after the first entries have been
+     * sent, the response is cut off and the JSON is left incomplete.
+     *
+     * @param folderId The ID (S3 key) of the folder to list.
+     * @param cursor   Optional pagination token to retrieve the next set of results.
+     * @param pageSize Maximum number of entries to return (up to {@code s3.listing.max-page-size}).
+     * @param bucket   Optional backend or bucket name.
+     * @param response The response the listing is written to.
+     */
+    @GetMapping("/list/folder/stream")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    @Operation(summary = "Stream folder contents", security = @SecurityRequirement(name = "basicAuth"))
+    public void streamFolder(
+            @RequestParam @Parameter(description = "The S3 key of the folder to list") String folderId,
+            @RequestParam(required = false) @Parameter(description = "Pagination cursor for retrieving the next set of results") String cursor,
+            @RequestParam(defaultValue = "1000") @Parameter(description = "Maximum number of entries to return") int pageSize,
+            @RequestParam(required = false) @Parameter(description = "Named backend or bucket to use; by default the key prefix decides") String bucket,
+            HttpServletResponse response) throws IOException {
+        if (pageSize < 1 || pageSize > maxListingPageSize) {
+            throw new IllegalArgumentException("pageSize must be between 1 and " + maxListingPageSize);
+        }
+        logger.info("Streaming contents of folder: {} with cursor: {} and page size: {}", folderId, cursor, pageSize);
+        StorageService storage = storageFor(bucket);
+        Resource folderResource = storage.getResource(folderId);
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        ListingJsonWriter writer = new ListingJsonWriter(objectMapper.getFactory(), response.getOutputStream());
+        String nextCursor = storage.streamFolder(folderResource, cursor, pageSize, writer);
+        writer.finish(nextCursor);
     }
 
     /**
      * Retrieves metadata for a specific file or folder.
      *
-     * @param id The S3 key of the file or folder.
+     * @param id     The S3 key of the file or folder.
+     * @param bucket Optional backend or bucket name.
      * @return A {@link Resource} object containing the metadata of the file or folder.
      */
     @GetMapping("/resource")
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
     @Operation(summary = "Retrieve resource metadata", security = @SecurityRequirement(name = "basicAuth"))
     public Resource getResource(
-            @RequestParam @Parameter(description = "The S3 key of the file or folder to retrieve metadata for") String id) {
+            @RequestParam @Parameter(description = "The S3 key of the file or folder to retrieve metadata for") String id,
+            @RequestParam(required = false) @Parameter(description = "Named backend or bucket to use; by default the key prefix decides") String bucket) {
         logger.info("Retrieving metadata for resource: {}", id);
-        return s3StorageService.getResource(id);
+        return storageFor(bucket).getResource(id);
     }
 
     /**
      * Downloads a file and returns it as an attachment or an error response.
+     * Large files (or any file, when requested) are answered with a 302 redirect
+     * to a short-lived presigned URL so the bytes never pass through the application.
      *
-     * @param id The S3 key of the file to download.
-     * @return A {@link ResponseEntity} containing the file as an attachment or an error response.
+     * @param id       The S3 key of the file to download.
+     * @param redirect Forces (true) or suppresses (false) the presigned redirect; when omitted the size threshold decides.
+     * @param bucket   Optional backend or bucket name.
+     * @param authentication The current user, whose bandwidth and concurrency limits apply to streamed downloads.
+     * @return A {@link ResponseEntity} containing the file as an attachment, a redirect, or an error response.
      */
     @GetMapping("/download")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
     @Operation(summary = "Download a file", security = @SecurityRequirement(name = "basicAuth"))
     public ResponseEntity<?> downloadFile(
-            @RequestParam @Parameter(description = "The S3 key of the file to download") String id) {
+            @RequestParam @Parameter(description = "The S3 key of the file to download") String id,
+            @RequestParam(required = false) @Parameter(description = "Redirect to a presigned URL instead of streaming the file") Boolean redirect,
+            @RequestParam(required = false) @Parameter(description = "Named backend or bucket to use; by default the key prefix decides") String bucket,
+            Authentication authentication) {
         logger.info("Downloading file with key: {}", id);
+        StorageService storage = storageFor(bucket);
 
         try {
-            Resource resource = s3StorageService.getResource(id);
-            File file = s3StorageService.getAsFile(resource);
-            FileSystemResource fsResource = new FileSystemResource(file);
+            Resource resource = storage.getResource(id);
+
+            if (shouldRedirect(resource, redirect)) {
+                URL url = storage.generateDownloadUrl(resource, presignExpiry);
+                logger.info("Redirecting download of '{}' ({} bytes) to presigned URL", id, resource.getSize());
+                return ResponseEntity.status(HttpStatus.FOUND)
+                        .location(url.toURI())
+                        .build();
+            }
+
+            TransferPermit permit = transferThrottle.acquire(authentication, TransferDirection.DOWNLOAD);
+            File file;
+            try {
+                file = storage.getAsFile(resource);
+            } catch (RuntimeException e) {
+                permit.close();
+                throw e;
+            }
+            SpooledFileResource body = new SpooledFileResource(file, permit);
+            RequestContextHolder.currentRequestAttributes().registerDestructionCallback(
+                    SpooledFileResource.class.getName(), body::release, RequestAttributes.SCOPE_REQUEST);
 
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getName() + "\"")
                     .contentLength(file.length())
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(fsResource);
+                    .body(body);
 
+        } catch (StorageBusyException | StorageUnavailableException e) {
+            throw e;
         } catch (S3StorageException e) {
             logger.error("Error during file download: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -117,6 +230,8 @@ public class S3FileController {
      *
      * @param file The file to upload.
      * @param key  The S3 key under which the file should be stored.
+     * @param bucket Optional backend or bucket name.
+     * @param authentication The current user, whose bandwidth and concurrency limits apply to the upload.
      * @return A success message indicating the file has been uploaded.
      */
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -124,9 +239,167 @@ public class S3FileController {
     @Operation(summary = "Upload a file", security = @SecurityRequirement(name = "basicAuth"))
     public String uploadFile(
             @RequestParam("file") @Parameter(description = "The file to upload") MultipartFile file,
-            @RequestParam("key") @Parameter(description = "The S3 key under which the file will be stored") String key) {
+            @RequestParam("key") @Parameter(description = "The S3 key under which the file will be stored") String key,
+            @RequestParam(required = false) @Parameter(description = "Named backend or bucket to use; by default the key prefix decides") String bucket,
+            Authentication authentication) {
         logger.info("Uploading file with key: {}", key);
-        s3StorageService.uploadFile(key, file);
+        StorageService storage = storageFor(bucket);
+        try (TransferPermit permit = transferThrottle.acquire(authentication, TransferDirection.UPLOAD)) {
+            storage.uploadFile(key, permit.throttle(file));
+        }
         return "File uploaded successfully with key: " + key;
     }
+
+    /**
+     * Copies a file, or a whole folder, to a new key. The copy runs server-side inside the bucket.
+     * Only accessible to users with the ADMIN role.
+     *
+     * @param sourceId The S3 key of the file or folder (ending in "/") to copy.
+     * @param targetId The S3 key to copy to; must end in "/" when copying a folder.
+     * @param bucket   Optional backend or bucket name.
+     * @return A success message with the number of objects copied.
+     */
+    @PostMapping("/copy")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Copy a file or folder", security = @SecurityRequirement(name = "basicAuth"))
+    public String copy(
+            @RequestParam @Parameter(description = "The S3 key of the file or folder to copy") String sourceId,
+            @RequestParam @Parameter(description = "The S3 key to copy to") String targetId,
+            @RequestParam(required = false) @Parameter(description = "Named backend or bucket to use; by default the key prefix decides") String bucket) {
+        logger.info("Copying '{}' to '{}'", sourceId, targetId);
+        int count = storageFor(bucket).copy(sourceId, targetId);
+        return "Copied " + count + " object(s) from " + sourceId + " to " + targetId;
+    }
+
+    /**
+     * Moves a file, or a whole folder, to a new key. The move runs server-side inside the bucket.
+     * Only accessible to users with the ADMIN role.
+     *
+     * @param sourceId The S3 key of the file or folder (ending in "/") to move.
+     * @param targetId The S3 key to move to; must end in "/" when moving a folder.
+     * @param bucket   Optional backend or bucket name.
+     * @return A success message with the number of objects moved.
+     */
+    @PostMapping("/move")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Move a file or folder", security = @SecurityRequirement(name = "basicAuth"))
+    public String move(
+            @RequestParam @Parameter(description = "The S3 key of the file or folder to move") String sourceId,
+            @RequestParam @Parameter(description = "The S3 key to move to") String targetId,
+            @RequestParam(required = false) @Parameter(description = "Named backend or bucket to use; by default the key prefix decides") String bucket) {
+        logger.info("Moving '{}' to '{}'", sourceId, targetId);
+        int count = storageFor(bucket).move(sourceId, targetId);
+        return "Moved " + count + " object(s) from " + sourceId + " to " + targetId;
+    }
+
+    /**
+     * Accepts a file into the local spool and uploads it to S3/MinIO in the background.
+     * Only accessible to users with the ADMIN role.
+     *
+     * @param file The file to upload.
+     * @param key  The S3 key under which the file should be stored.
+     * @param bucket Optional backend or bucket name.
+     * @return 202 Accepted with the queued {@link UploadJob}; poll its status endpoint for the result.
+     */
+    @PostMapping(value = "/upload/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Upload a file asynchronously", security = @SecurityRequirement(name = "basicAuth"))
+    public ResponseEntity<UploadJob> uploadFileAsync(
+            @RequestParam("file") @Parameter(description = "The file to upload") MultipartFile file,
+            @RequestParam("key") @Parameter(description = "The S3 key under which the file will be stored") String key,
+            @RequestParam(required = false) @Parameter(description = "Named backend or bucket to use; by default the key prefix decides") String bucket) {
+        logger.info("Queueing asynchronous upload with key: {}", key);
+        UploadJob job = uploadJobService.submit(storageFor(bucket), key, file);
+        return ResponseEntity.accepted()
+                .header(HttpHeaders.LOCATION, "/api/s3/files/upload/jobs/" + job.getJobId())
+                .body(job);
+    }
+
+    /**
+     * Reports progress, throughput and result of an asynchronous upload.
+     * Only accessible to users with the ADMIN role.
+     *
+     * @param jobId The id returned when the upload was queued.
+     * @return The current {@link UploadJob} state.
+     */
+    @GetMapping("/upload/jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get asynchronous upload status", security = @SecurityRequirement(name = "basicAuth"))
+    public UploadJob getUploadJob(
+            @PathVariable @Parameter(description = "The upload job id") String jobId) {
+        return uploadJobService.getJob(jobId);
+    }
+
+    /**
+     * Issues a presigned PUT URL so a client can upload straight to the bucket.
+     * Only accessible to users with the ADMIN role.
+     *
+     * @param key         The S3 key the client may write.
+     * @param contentType Optional Content-Type the client will send with the upload.
+     * @param bucket      Optional backend or bucket name.
+     * @return A {@link PresignedUrl} describing the URL and its expiry.
+     */
+    @PostMapping("/upload/presigned")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Issue a presigned upload URL", security = @SecurityRequirement(name = "basicAuth"))
+    public PresignedUrl presignUpload(
+            @RequestParam("key") @Parameter(description = "The S3 key under which the file will be stored") String key,
+            @RequestParam(required = false) @Parameter(description = "The Content-Type the client will upload with") String contentType,
+            @RequestParam(required = false) @Parameter(description = "Named backend or bucket to use; by default the key prefix decides") String bucket) {
+        logger.info("Issuing presigned upload URL for key: {}", key);
+        Instant expiresAt = Instant.now().plus(presignExpiry);
+        URL url = storageFor(bucket).generateUploadUrl(key, contentType, presignExpiry);
+        return PresignedUrl.builder()
+                .key(key)
+                .url(url.toString())
+                .method("PUT")
+                .expiresAt(expiresAt.toString())
+                .build();
+    }
+
+    /**
+     * Picks the storage of an explicitly named backend or bucket; without one, the key decides.
+     */
+    private StorageService storageFor(String bucket) {
+        return bucket == null || bucket.isBlank() ? s3StorageService : storageBackends.forBucket(bucket);
+    }
+
+    private boolean shouldRedirect(Resource resource, Boolean redirect) {
+        if (redirect != null) {
+            return redirect;
+        }
+        return redirectThreshold >= 0 && resource.getSize() >= redirectThreshold;
+    }
+
+    /**
+     * A spooled file as response body, read through the transfer permit's throttle. Being file-backed,
+     * it keeps HTTP {@code Range} requests working. The spool lease and the permit are released when the
+     * request completes rather than when a stream is closed: a multi-range response opens the file once
+     * per range, and HEAD or unsatisfiable range requests never open it at all.
+     */
+    private class SpooledFileResource extends FileSystemResource {
+
+        private final TransferPermit permit;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        SpooledFileResource(File file, TransferPermit permit) {
+            super(file);
+            this.permit = permit;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return permit.throttle(super.getInputStream());
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                try {
+                    s3StorageService.releaseFile(getFile());
+                } finally {
+                    permit.close();
+                }
+            }
+        }
+    }
 }
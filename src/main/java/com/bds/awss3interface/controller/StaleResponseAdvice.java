@@ -0,0 +1,37 @@
+package com.bds.awss3interface.controller;
+
+import com.bds.awss3interface.service.resilience.StaleResponses;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds {@code Warning: 110} and {@code Age} headers to responses that were served from the stale cache
+ * because the storage backend was unavailable or still being refreshed.
+ */
+@RestControllerAdvice
+public class StaleResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && servletRequest.getServletRequest().getAttribute(StaleResponses.AGE_ATTRIBUTE) instanceof Long age) {
+            response.getHeaders().set("Warning", "110 - \"Response is Stale\"");
+            response.getHeaders().set(HttpHeaders.AGE, Long.toString(age));
+        }
+        return body;
+    }
+}
@@ -1,5 +1,6 @@
 package com.bds.awss3interface.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -21,6 +22,16 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
     }
 
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleBadRequest(IllegalArgumentException ex) {
+        ErrorResponse body = new ErrorResponse(
+                "BAD_REQUEST",
+                ex.getMessage(),
+                Instant.now().toString()
+        );
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+    }
+
     @ExceptionHandler(S3StorageException.class)
     public ResponseEntity<ErrorResponse> handleS3Error(S3StorageException ex) {
         ErrorResponse body = new ErrorResponse(
@@ -31,6 +42,30 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(body);
     }
 
+    @ExceptionHandler(StorageBusyException.class)
+    public ResponseEntity<ErrorResponse> handleBusy(StorageBusyException ex) {
+        ErrorResponse body = new ErrorResponse(
+                "SERVICE_BUSY",
+                ex.getMessage(),
+                Instant.now().toString()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(body);
+    }
+
+    @ExceptionHandler(StorageUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleUnavailable(StorageUnavailableException ex) {
+        ErrorResponse body = new ErrorResponse(
+                "STORAGE_UNAVAILABLE",
+                ex.getMessage(),
+                Instant.now().toString()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "10")
+                .body(body);
+    }
+
     @ExceptionHandler(AccessDeniedException.class)
     public ResponseEntity<ErrorResponse> handleAccessDenied(AccessDeniedException ex) {
         ErrorResponse body = new ErrorResponse(
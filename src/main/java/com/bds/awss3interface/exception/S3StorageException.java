@@ -1,5 +1,8 @@
 package com.bds.awss3interface.exception;
 
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+
 public class S3StorageException extends RuntimeException {
     public S3StorageException(String message) {
         super(message);
@@ -9,4 +12,15 @@ public class S3StorageException extends RuntimeException {
         super(message, cause);
     }
 
+    /**
+     * Whether the underlying failure is transient (network trouble, throttling, 5xx) and worth retrying.
+     */
+    public boolean isRetryable() {
+        Throwable cause = getCause();
+        if (cause instanceof AmazonServiceException serviceException) {
+            return serviceException.getStatusCode() >= 500 || serviceException.getStatusCode() == 429;
+        }
+        return cause instanceof SdkClientException;
+    }
+
 }
@@ -0,0 +1,14 @@
+package com.bds.awss3interface.exception;
+
+/**
+ * Thrown when the service is at capacity and refuses new work instead of queueing it without bound.
+ */
+public class StorageBusyException extends RuntimeException {
+    public StorageBusyException(String message) {
+        super(message);
+    }
+
+    public StorageBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,10 @@
+package com.bds.awss3interface.exception;
+
+/**
+ * Thrown without calling the backend when its circuit breaker is open and no stale copy can be served.
+ */
+public class StorageUnavailableException extends RuntimeException {
+    public StorageUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.bds.awss3interface.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A short-lived URL that lets a client talk to the bucket directly.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedUrl {
+    private String key;
+    private String url;
+    private String method;    // HTTP method the URL was signed for (GET or PUT)
+    private String expiresAt; // ISO-8601 instant after which the URL is rejected
+}
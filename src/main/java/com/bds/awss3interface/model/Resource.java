@@ -1,5 +1,6 @@
 package com.bds.awss3interface.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,4 +17,7 @@ public class Resource {
     private String id;
     private String name;
     private int type; // 0 for file, 1 for folder
+    private long size; // content length in bytes, 0 for folders
+    @JsonIgnore
+    private String etag; // version of the file contents when known, used to validate spooled copies
 }
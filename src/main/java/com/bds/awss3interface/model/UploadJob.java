@@ -0,0 +1,27 @@
+package com.bds.awss3interface.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Snapshot of an asynchronous upload job, as reported by the status endpoint.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadJob {
+    private String jobId;
+    private String key;
+    private UploadJobStatus status;
+    private long totalBytes;
+    private long bytesTransferred;
+    private long bytesPerSecond; // average throughput of the current (or last) attempt
+    private int attempts;
+    private String submittedAt;
+    private String startedAt;
+    private String finishedAt;
+    private String error;
+}
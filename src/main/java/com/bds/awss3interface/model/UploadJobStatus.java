@@ -0,0 +1,12 @@
+package com.bds.awss3interface.model;
+
+/**
+ * Lifecycle of an asynchronous upload job.
+ */
+public enum UploadJobStatus {
+    QUEUED,
+    RUNNING,
+    RETRYING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,104 @@
+package com.bds.awss3interface.service.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stops sending requests to a backend after a run of consecutive failures.
+ * <p>
+ * While open, callers fail fast (or serve stale data) and a background probe checks the backend
+ * every {@code openDuration}; the first successful probe closes the breaker again. Live traffic
+ * is never used as the probe, so a sick backend sees a single request per interval.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Runnable probe;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile State state = State.CLOSED;
+
+    /**
+     * @param name             backend name, for logging
+     * @param failureThreshold consecutive failures that open the breaker
+     * @param openDuration     delay between background probes while open
+     * @param probe            a cheap call against the backend that throws when it is still unhealthy
+     */
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration, Runnable probe) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.probe = probe;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "circuit-probe-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    public void recordFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open();
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private synchronized void open() {
+        if (state == State.OPEN) {
+            return;
+        }
+        state = State.OPEN;
+        logger.warn("Circuit for backend '{}' opened after {} consecutive failures; probing every {}",
+                name, consecutiveFailures.get(), openDuration);
+        scheduleProbe();
+    }
+
+    private void scheduleProbe() {
+        scheduler.schedule(this::runProbe, openDuration.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void runProbe() {
+        try {
+            probe.run();
+        } catch (RuntimeException e) {
+            logger.info("Probe of backend '{}' failed, circuit stays open: {}", name, e.getMessage());
+            scheduleProbe();
+            return;
+        }
+        synchronized (this) {
+            consecutiveFailures.set(0);
+            state = State.CLOSED;
+        }
+        logger.info("Probe of backend '{}' succeeded, circuit closed", name);
+    }
+}
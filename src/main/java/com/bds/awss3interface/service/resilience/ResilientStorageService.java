@@ -0,0 +1,244 @@
+package com.bds.awss3interface.service.resilience;
+
+import com.bds.awss3interface.common.ListingSink;
+import com.bds.awss3interface.common.StorageService;
+import com.bds.awss3interface.exception.S3StorageException;
+import com.bds.awss3interface.exception.StorageUnavailableException;
+import com.bds.awss3interface.model.ListResult;
+import com.bds.awss3interface.model.Resource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Guards a backend with a {@link CircuitBreaker} and keeps the last known listing pages and
+ * resource metadata so browsing keeps working while the backend is degraded.
+ * <p>
+ * Listings and metadata are served stale (and flagged via {@link StaleResponses}) when the circuit
+ * is open, when the backend call fails, or when another request is already refreshing the same
+ * entry. All other operations simply fail fast while the circuit is open; downloads also look up
+ * the object's metadata afresh instead of trusting what they were given.
+ */
+public class ResilientStorageService implements StorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResilientStorageService.class);
+
+    private final StorageService delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final String backendName;
+    private final Duration maxStale;
+    private final StaleCache<ListResult<Resource>> listings;
+    private final StaleCache<Resource> resources;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Counter staleServed;
+
+    public ResilientStorageService(StorageService delegate, CircuitBreaker circuitBreaker, String backendName,
+                                   int cacheSize, Duration maxStale, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.backendName = backendName;
+        this.maxStale = maxStale;
+        this.listings = new StaleCache<>(cacheSize);
+        this.resources = new StaleCache<>(cacheSize);
+        this.staleServed = Counter.builder("s3.stale.served")
+                .description("Listings and metadata answered from the stale cache")
+                .tag("backend", backendName)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ListResult<Resource> listFolder(Resource parent, String cursor) {
+        String cacheKey = (parent != null ? parent.getId() : "") + "|" + (cursor != null ? cursor : "");
+        // Only a fresh listing may refresh the metadata of its entries; a stale one would make them look new
+        return readThrough("list:" + cacheKey, listings, cacheKey, () -> delegate.listFolder(parent, cursor),
+                result -> result.getResources().forEach(resource -> resources.put(resource.getId(), resource)));
+    }
+
+    @Override
+    public String streamFolder(Resource parent, String cursor, int maxEntries, ListingSink sink) {
+        // Streamed pages go straight to the client and are never cached, so there is nothing stale to serve
+        return guarded(() -> delegate.streamFolder(parent, cursor, maxEntries, sink));
+    }
+
+    @Override
+    public Resource getResource(String id) {
+        return readThrough("resource:" + id, resources, id, () -> delegate.getResource(id), resource -> { });
+    }
+
+    @Override
+    public File getAsFile(Resource resource) {
+        // The spool sizes and validates its copy by the metadata, so a transfer never uses the stale cache
+        return guarded(() -> {
+            Resource current = resource;
+            if (resource != null && resource.getType() == 0) {
+                current = delegate.getResource(resource.getId());
+                resources.put(current.getId(), current);
+            }
+            return delegate.getAsFile(current);
+        });
+    }
+
+    @Override
+    public void releaseFile(File file) {
+        delegate.releaseFile(file);
+    }
+
+    @Override
+    public void uploadFile(String key, MultipartFile file) {
+        guarded(() -> {
+            delegate.uploadFile(key, file);
+            return null;
+        });
+    }
+
+    @Override
+    public void uploadFile(String key, File file, String contentType, LongConsumer progressListener) {
+        guarded(() -> {
+            delegate.uploadFile(key, file, contentType, progressListener);
+            return null;
+        });
+    }
+
+    @Override
+    public int copy(String sourceId, String targetId) {
+        return guarded(() -> delegate.copy(sourceId, targetId));
+    }
+
+    @Override
+    public int move(String sourceId, String targetId) {
+        return guarded(() -> delegate.move(sourceId, targetId));
+    }
+
+    @Override
+    public URL generateDownloadUrl(Resource resource, Duration expiry) {
+        // Presigning is a local computation; it works even while the backend is down
+        return delegate.generateDownloadUrl(resource, expiry);
+    }
+
+    @Override
+    public URL generateUploadUrl(String key, String contentType, Duration expiry) {
+        return delegate.generateUploadUrl(key, contentType, expiry);
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Calls the backend and caches the result, or answers from the cache as described in the class comment.
+     *
+     * @param onFresh receives values that came back from the backend, never stale ones
+     */
+    private <T> T readThrough(String flightKey, StaleCache<T> cache, String cacheKey, Supplier<T> call,
+                              Consumer<T> onFresh) {
+        StaleCache.Entry<T> cached = cache.get(cacheKey, maxStale);
+
+        if (cached != null && circuitBreaker.isOpen()) {
+            return serveStale(cached, cacheKey, "circuit open");
+        }
+        boolean refresher = refreshing.add(flightKey);
+        if (cached != null && !refresher) {
+            return serveStale(cached, cacheKey, "refresh in progress");
+        }
+
+        try {
+            T value = guarded(call);
+            cache.put(cacheKey, value);
+            onFresh.accept(value);
+            return value;
+        } catch (S3StorageException | StorageUnavailableException e) {
+            if (cached != null) {
+                return serveStale(cached, cacheKey, e.getMessage());
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            cache.remove(cacheKey); // e.g. the resource no longer exists
+            throw e;
+        } finally {
+            if (refresher) {
+                refreshing.remove(flightKey);
+            }
+        }
+    }
+
+    private <T> T guarded(Supplier<T> call) {
+        if (circuitBreaker.isOpen()) {
+            throw new StorageUnavailableException("Storage backend '" + backendName + "' is unavailable, try again later");
+        }
+        try {
+            T value = call.get();
+            circuitBreaker.recordSuccess();
+            return value;
+        } catch (S3StorageException e) {
+            if (e.isRetryable()) {
+                circuitBreaker.recordFailure();
+            } else {
+                circuitBreaker.recordSuccess(); // e.g. 404 or 403: the backend did answer
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            // Not-found, bad input and the like mean the backend answered
+            circuitBreaker.recordSuccess();
+            throw e;
+        }
+    }
+
+    private <T> T serveStale(StaleCache.Entry<T> entry, String cacheKey, String reason) {
+        Duration age = Duration.between(entry.storedAt(), Instant.now());
+        logger.info("Serving stale '{}' from backend '{}' ({} old): {}", cacheKey, backendName, age, reason);
+        staleServed.increment();
+        StaleResponses.mark(age);
+        return entry.value();
+    }
+
+    /**
+     * A small LRU map of last known values with their timestamps.
+     */
+    private static class StaleCache<T> {
+
+        record Entry<T>(T value, Instant storedAt) {
+        }
+
+        private final Map<String, Entry<T>> entries;
+
+        StaleCache(int maxEntries) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        synchronized Entry<T> get(String key, Duration maxAge) {
+            Entry<T> entry = entries.get(key);
+            if (entry != null && entry.storedAt().plus(maxAge).isBefore(Instant.now())) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+
+        synchronized void put(String key, T value) {
+            entries.put(key, new Entry<>(value, Instant.now()));
+        }
+
+        synchronized void remove(String key) {
+            entries.remove(key);
+        }
+    }
+}
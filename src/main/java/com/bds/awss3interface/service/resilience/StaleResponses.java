@@ -0,0 +1,34 @@
+package com.bds.awss3interface.service.resilience;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+
+/**
+ * Flags the current HTTP request as having been answered from the stale cache,
+ * so the response can carry a warning header.
+ */
+public final class StaleResponses {
+
+    /**
+     * Request attribute holding the age, in seconds, of the oldest stale value used for the response.
+     */
+    public static final String AGE_ATTRIBUTE = StaleResponses.class.getName() + ".age";
+
+    private StaleResponses() {
+    }
+
+    static void mark(Duration age) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return; // not serving an HTTP request (e.g. warm-up or a background worker)
+        }
+        long seconds = age.toSeconds();
+        Object previous = attributes.getAttribute(AGE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (previous instanceof Long previousSeconds && previousSeconds >= seconds) {
+            return;
+        }
+        attributes.setAttribute(AGE_ATTRIBUTE, seconds, RequestAttributes.SCOPE_REQUEST);
+    }
+}
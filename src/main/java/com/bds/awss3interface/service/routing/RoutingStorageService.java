@@ -0,0 +1,97 @@
+package com.bds.awss3interface.service.routing;
+
+import com.bds.awss3interface.common.ListingSink;
+import com.bds.awss3interface.common.StorageService;
+import com.bds.awss3interface.model.ListResult;
+import com.bds.awss3interface.model.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.net.URL;
+import java.time.Duration;
+import java.util.function.LongConsumer;
+
+/**
+ * Spreads requests over several named storage backends.
+ * <p>
+ * Each call goes to the backend whose key prefix is the longest match for the key, falling back to the
+ * default backend. Keys are passed through unchanged. To address a backend by name or bucket instead,
+ * use {@link StorageBackends#forBucket(String)}.
+ */
+public class RoutingStorageService implements StorageService {
+
+    private final StorageBackends backends;
+
+    public RoutingStorageService(StorageBackends backends) {
+        this.backends = backends;
+    }
+
+    @Override
+    public ListResult<Resource> listFolder(Resource parent, String cursor) {
+        return route(parent != null ? parent.getId() : null).listFolder(parent, cursor);
+    }
+
+    @Override
+    public String streamFolder(Resource parent, String cursor, int maxEntries, ListingSink sink) {
+        return route(parent != null ? parent.getId() : null).streamFolder(parent, cursor, maxEntries, sink);
+    }
+
+    @Override
+    public Resource getResource(String id) {
+        return route(id).getResource(id);
+    }
+
+    @Override
+    public File getAsFile(Resource resource) {
+        return route(resource != null ? resource.getId() : null).getAsFile(resource);
+    }
+
+    @Override
+    public void releaseFile(File file) {
+        // All backends share one download spool, so any of them can release the lease
+        backends.getDefaultBackend().getStorageService().releaseFile(file);
+    }
+
+    @Override
+    public void uploadFile(String key, MultipartFile file) {
+        route(key).uploadFile(key, file);
+    }
+
+    @Override
+    public void uploadFile(String key, File file, String contentType, LongConsumer progressListener) {
+        route(key).uploadFile(key, file, contentType, progressListener);
+    }
+
+    @Override
+    public int copy(String sourceId, String targetId) {
+        return routePair(sourceId, targetId).copy(sourceId, targetId);
+    }
+
+    @Override
+    public int move(String sourceId, String targetId) {
+        return routePair(sourceId, targetId).move(sourceId, targetId);
+    }
+
+    @Override
+    public URL generateDownloadUrl(Resource resource, Duration expiry) {
+        return route(resource != null ? resource.getId() : null).generateDownloadUrl(resource, expiry);
+    }
+
+    @Override
+    public URL generateUploadUrl(String key, String contentType, Duration expiry) {
+        return route(key).generateUploadUrl(key, contentType, expiry);
+    }
+
+    private StorageService route(String key) {
+        return backends.forKey(key).getStorageService();
+    }
+
+    private StorageService routePair(String sourceId, String targetId) {
+        StorageBackend source = backends.forKey(sourceId);
+        if (source != backends.forKey(targetId)) {
+            throw new IllegalArgumentException("Cannot copy or move between buckets: '"
+                    + sourceId + "' and '" + targetId + "' are stored in different backends");
+        }
+        return source.getStorageService();
+    }
+}
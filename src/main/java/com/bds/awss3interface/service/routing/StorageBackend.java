@@ -0,0 +1,31 @@
+package com.bds.awss3interface.service.routing;
+
+import com.bds.awss3interface.common.StorageService;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * One named bucket served by its own client and StorageService.
+ */
+@Getter
+@RequiredArgsConstructor
+public class StorageBackend {
+    private final String name;
+    private final String bucket;
+    private final String keyPrefix; // may be null: only reachable by name
+    private final StorageService storageService;
+    private final Runnable ping; // a cheap request straight to the bucket, bypassing caches and the circuit breaker
+    private final Runnable shutdownHook;
+
+    public boolean matchesKey(String key) {
+        return keyPrefix != null && !keyPrefix.isEmpty() && key != null && key.startsWith(keyPrefix);
+    }
+
+    public void ping() {
+        ping.run();
+    }
+
+    public void shutdown() {
+        shutdownHook.run();
+    }
+}
@@ -0,0 +1,68 @@
+package com.bds.awss3interface.service.routing;
+
+import com.bds.awss3interface.common.StorageService;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The configured storage backends, looked up by name, bucket or key prefix.
+ * <p>
+ * Callers that let the client pick a bucket use {@link #forBucket(String)}; everything else goes
+ * through the {@code storageService} bean, which routes each key to its backend.
+ */
+public class StorageBackends {
+
+    private final StorageBackend defaultBackend;
+    private final List<StorageBackend> backends;
+    private final List<StorageBackend> prefixRoutes;
+
+    public StorageBackends(StorageBackend defaultBackend, List<StorageBackend> backends) {
+        this.defaultBackend = defaultBackend;
+        this.backends = List.copyOf(backends);
+        this.prefixRoutes = backends.stream()
+                .filter(backend -> backend.getKeyPrefix() != null && !backend.getKeyPrefix().isEmpty())
+                .sorted(Comparator.comparingInt((StorageBackend backend) -> backend.getKeyPrefix().length()).reversed())
+                .toList();
+    }
+
+    /**
+     * Returns the storage of the backend with the given name or bucket.
+     *
+     * @param bucket backend name or bucket name
+     * @return The matching StorageService.
+     * @throws IllegalArgumentException if no backend has that name or bucket
+     */
+    public StorageService forBucket(String bucket) {
+        return backends.stream()
+                .filter(backend -> backend.getName().equals(bucket) || backend.getBucket().equals(bucket))
+                .findFirst()
+                .map(StorageBackend::getStorageService)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown bucket: " + bucket));
+    }
+
+    /**
+     * Returns the backend whose key prefix is the longest match for the key, or the default backend.
+     */
+    public StorageBackend forKey(String key) {
+        return prefixRoutes.stream()
+                .filter(backend -> backend.matchesKey(key))
+                .findFirst()
+                .orElse(defaultBackend);
+    }
+
+    public StorageBackend getDefaultBackend() {
+        return defaultBackend;
+    }
+
+    public List<StorageBackend> getBackends() {
+        return backends;
+    }
+
+    /**
+     * Shuts down every backend's client and worker pools.
+     */
+    public void shutdown() {
+        backends.forEach(StorageBackend::shutdown);
+    }
+}
@@ -0,0 +1,56 @@
+package com.bds.awss3interface.service.s3;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records latency and outcome of every S3 call made by one backend's client,
+ * tagged with the backend name and SDK operation (e.g. ListObjectsV2Request).
+ */
+public class S3ClientMetrics extends RequestHandler2 {
+
+    private static final HandlerContextKey<Long> START_NANOS = new HandlerContextKey<>("S3ClientMetricsStartNanos");
+
+    private final MeterRegistry meterRegistry;
+    private final String backend;
+
+    public S3ClientMetrics(MeterRegistry meterRegistry, String backend) {
+        this.meterRegistry = meterRegistry;
+        this.backend = backend;
+    }
+
+    @Override
+    public void beforeRequest(Request<?> request) {
+        request.addHandlerContext(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterResponse(Request<?> request, Response<?> response) {
+        record(request, "success");
+    }
+
+    @Override
+    public void afterError(Request<?> request, Response<?> response, Exception e) {
+        record(request, "error");
+    }
+
+    private void record(Request<?> request, String outcome) {
+        Long start = request.getHandlerContext(START_NANOS);
+        if (start == null) {
+            return;
+        }
+        Timer.builder("s3.client.requests")
+                .description("S3 calls made by the storage backends")
+                .tag("backend", backend)
+                .tag("operation", request.getOriginalRequest().getClass().getSimpleName())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
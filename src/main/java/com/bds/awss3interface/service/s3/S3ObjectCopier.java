@@ -0,0 +1,219 @@
+package com.bds.awss3interface.service.s3;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.*;
+import com.bds.awss3interface.exception.S3StorageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Copies objects inside S3 without their bytes ever passing through the application.
+ * <p>
+ * Small objects use a single {@code copyObject}; objects above the multipart threshold are split into
+ * ranges copied in parallel with {@code copyPart}. Prefix operations fan out over a separate bounded
+ * pool, one listing page at a time, so parts never wait behind the objects that spawned them.
+ */
+public class S3ObjectCopier {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3ObjectCopier.class);
+    private static final int PAGE_SIZE = 1000; // also the DeleteObjects batch limit
+    private static final List<String> COPIED_HEADERS = List.of(Headers.CONTENT_TYPE, Headers.CONTENT_DISPOSITION,
+            Headers.CACHE_CONTROL, Headers.CONTENT_ENCODING, Headers.CONTENT_LANGUAGE);
+
+    private final AmazonS3 s3Client;
+    private final long multipartThreshold;
+    private final long partSize;
+    private final ExecutorService objectExecutor;
+    private final ExecutorService partExecutor;
+
+    public S3ObjectCopier(AmazonS3 s3Client, long multipartThreshold, long partSize,
+                          int objectConcurrency, int partConcurrency) {
+        this.s3Client = s3Client;
+        this.multipartThreshold = multipartThreshold;
+        this.partSize = partSize;
+        this.objectExecutor = Executors.newFixedThreadPool(objectConcurrency, daemonThreads("s3-copy-object-"));
+        this.partExecutor = Executors.newFixedThreadPool(partConcurrency, daemonThreads("s3-copy-part-"));
+    }
+
+    /**
+     * Copies a single object, using a parallel multipart copy when it is large.
+     *
+     * @param sourceMetadata the source's metadata, as returned by a HEAD the caller already made
+     */
+    public void copyObject(String bucketName, String sourceKey, String targetKey, ObjectMetadata sourceMetadata) {
+        if (sourceMetadata.getContentLength() < multipartThreshold) {
+            s3Client.copyObject(bucketName, sourceKey, bucketName, targetKey);
+        } else {
+            multipartCopy(bucketName, sourceKey, targetKey, sourceMetadata);
+        }
+    }
+
+    /**
+     * Copies every object under {@code sourcePrefix} to the same relative key under {@code targetPrefix},
+     * optionally deleting each page of sources once all of its copies have succeeded.
+     *
+     * @return The number of objects copied.
+     */
+    public int copyPrefix(String bucketName, String sourcePrefix, String targetPrefix, boolean deleteSources) {
+        Function<String, String> targetKeyFor = key -> targetPrefix + key.substring(sourcePrefix.length());
+        AtomicInteger copied = new AtomicInteger();
+
+        ListObjectsV2Request request = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix(sourcePrefix)
+                .withMaxKeys(PAGE_SIZE);
+
+        ListObjectsV2Result page;
+        do {
+            page = s3Client.listObjectsV2(request);
+            List<S3ObjectSummary> summaries = page.getObjectSummaries();
+
+            List<Future<Void>> futures = new ArrayList<>(summaries.size());
+            for (S3ObjectSummary summary : summaries) {
+                futures.add(objectExecutor.submit(() -> {
+                    copyListedObject(bucketName, summary, targetKeyFor.apply(summary.getKey()));
+                    copied.incrementAndGet();
+                    return null;
+                }));
+            }
+            awaitAll(futures);
+
+            if (deleteSources && !summaries.isEmpty()) {
+                List<DeleteObjectsRequest.KeyVersion> keys = summaries.stream()
+                        .map(summary -> new DeleteObjectsRequest.KeyVersion(summary.getKey()))
+                        .toList();
+                // The listing continues by token, so removing this page does not disturb the next one
+                s3Client.deleteObjects(new DeleteObjectsRequest(bucketName).withKeys(keys).withQuiet(true));
+            }
+
+            request.setContinuationToken(page.getNextContinuationToken());
+        } while (page.isTruncated());
+
+        return copied.get();
+    }
+
+    /**
+     * Stops both pools; in-flight copies are interrupted.
+     */
+    public void shutdown() {
+        objectExecutor.shutdownNow();
+        partExecutor.shutdownNow();
+    }
+
+    private void copyListedObject(String bucketName, S3ObjectSummary summary, String targetKey) {
+        // The listing already tells us the size, so small objects skip the HEAD request
+        if (summary.getSize() < multipartThreshold) {
+            s3Client.copyObject(bucketName, summary.getKey(), bucketName, targetKey);
+        } else {
+            multipartCopy(bucketName, summary.getKey(), targetKey, s3Client.getObjectMetadata(bucketName, summary.getKey()));
+        }
+    }
+
+    private void multipartCopy(String bucketName, String sourceKey, String targetKey, ObjectMetadata sourceMetadata) {
+        long size = sourceMetadata.getContentLength();
+        logger.info("Multipart copy of '{}' ({} bytes) to '{}' in parts of {} bytes", sourceKey, size, targetKey, partSize);
+
+        String uploadId = s3Client.initiateMultipartUpload(initiateRequest(bucketName, targetKey, sourceMetadata))
+                .getUploadId();
+
+        try {
+            List<Future<PartETag>> futures = new ArrayList<>();
+            int partNumber = 1;
+            for (long firstByte = 0; firstByte < size; firstByte += partSize, partNumber++) {
+                CopyPartRequest part = new CopyPartRequest()
+                        .withSourceBucketName(bucketName)
+                        .withSourceKey(sourceKey)
+                        .withDestinationBucketName(bucketName)
+                        .withDestinationKey(targetKey)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partNumber)
+                        .withFirstByte(firstByte)
+                        .withLastByte(Math.min(firstByte + partSize, size) - 1);
+                futures.add(partExecutor.submit(() -> s3Client.copyPart(part).getPartETag()));
+            }
+
+            List<PartETag> partETags = awaitAll(futures);
+            partETags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+            s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, targetKey, uploadId, partETags));
+        } catch (RuntimeException e) {
+            try {
+                s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, targetKey, uploadId));
+            } catch (SdkClientException abortFailure) {
+                logger.warn("Failed to abort multipart copy '{}' of '{}': {}", uploadId, targetKey, abortFailure.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Multipart copies do not carry metadata over by themselves, so the upload is started with the
+     * source's headers, user metadata and encryption, as a single {@code copyObject} would keep them.
+     */
+    private static InitiateMultipartUploadRequest initiateRequest(String bucketName, String targetKey,
+                                                                  ObjectMetadata sourceMetadata) {
+        ObjectMetadata targetMetadata = new ObjectMetadata();
+        for (String header : COPIED_HEADERS) {
+            // Absent headers stay unset: a null value would be sent as an empty header
+            Object value = sourceMetadata.getRawMetadataValue(header);
+            if (value != null) {
+                targetMetadata.setHeader(header, value);
+            }
+        }
+        targetMetadata.setHttpExpiresDate(sourceMetadata.getHttpExpiresDate());
+        targetMetadata.setUserMetadata(sourceMetadata.getUserMetadata());
+
+        InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(bucketName, targetKey, targetMetadata);
+        String sseAlgorithm = sourceMetadata.getSSEAlgorithm();
+        if (SSEAlgorithm.KMS.getAlgorithm().equals(sseAlgorithm)) {
+            // The key travels as a request parameter, and is left out to use the account's default key
+            String keyId = sourceMetadata.getSSEAwsKmsKeyId();
+            request.setSSEAwsKeyManagementParams(keyId != null
+                    ? new SSEAwsKeyManagementParams(keyId)
+                    : new SSEAwsKeyManagementParams());
+        } else if (sseAlgorithm != null) {
+            targetMetadata.setSSEAlgorithm(sseAlgorithm);
+        }
+        return request;
+    }
+
+    /**
+     * Waits for every future, rethrowing the first failure as it was thrown by the task.
+     */
+    private static <T> List<T> awaitAll(List<Future<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new S3StorageException("Copy failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new S3StorageException("Interrupted while copying", e);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
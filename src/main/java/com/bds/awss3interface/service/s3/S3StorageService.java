@@ -1,22 +1,32 @@
 package com.bds.awss3interface.service.s3;
 
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.HttpMethod;
+import com.amazonaws.event.ProgressEventType;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.*;
+import com.bds.awss3interface.common.ListingSink;
 import com.bds.awss3interface.common.StorageService;
 import com.bds.awss3interface.exception.ResourceNotFoundException;
 import com.bds.awss3interface.exception.S3StorageException;
+import com.bds.awss3interface.exception.StorageBusyException;
 import com.bds.awss3interface.model.ListResult;
 import com.bds.awss3interface.model.Resource;
+import com.bds.awss3interface.service.spool.DownloadSpool;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.function.LongConsumer;
 
 @RequiredArgsConstructor
 public class S3StorageService implements StorageService {
@@ -24,7 +34,10 @@ public class S3StorageService implements StorageService {
     private static final Logger logger = LoggerFactory.getLogger(S3StorageService.class);
     private final AmazonS3 s3Client;
     private final String bucketName;
+    private final DownloadSpool downloadSpool;
+    private final S3ObjectCopier objectCopier;
     private final int PAGE_SIZE = 20;
+    private static final int MAX_KEYS_PER_REQUEST = 1000; // S3 never returns more per ListObjectsV2 call
 
     @Override
     public ListResult<Resource> listFolder(Resource parent, String cursor) {
@@ -45,13 +58,13 @@ public class S3StorageService implements StorageService {
 
             // Process folder prefixes
             result.getCommonPrefixes().forEach(prefixKey -> {
-                resources.add(createResource(prefixKey, 1)); // 1 = folder
+                resources.add(createResource(prefixKey, 1, 0)); // 1 = folder
             });
 
             // Process file objects
             result.getObjectSummaries().forEach(obj -> {
                 if (!obj.getKey().equals(prefix)) { // Skip folder placeholder object
-                    resources.add(createResource(obj.getKey(), 0)); // 0 = file
+                    resources.add(createResource(obj.getKey(), 0, obj.getSize())); // 0 = file
                 }
             });
 
@@ -72,6 +85,52 @@ public class S3StorageService implements StorageService {
         }
     }
 
+    @Override
+    public String streamFolder(Resource parent, String cursor, int maxEntries, ListingSink sink) {
+        String prefix = (parent != null && parent.getType() == 1) ? parent.getId() : "";
+
+        logger.info("Streaming folder with prefix: '{}', cursor: '{}' and up to {} entries", prefix, cursor, maxEntries);
+
+        String nextCursor = cursor;
+        int remaining = maxEntries;
+        int listed = 0;
+        try {
+            do {
+                ListObjectsV2Request request = new ListObjectsV2Request()
+                        .withBucketName(bucketName)
+                        .withPrefix(prefix)
+                        .withDelimiter("/")
+                        .withContinuationToken(nextCursor)
+                        .withMaxKeys(Math.min(remaining, MAX_KEYS_PER_REQUEST));
+                ListObjectsV2Result result = s3Client.listObjectsV2(request);
+
+                for (String folderKey : result.getCommonPrefixes()) {
+                    sink.accept(folderKey, 1, 0); // 1 = folder
+                }
+                for (S3ObjectSummary obj : result.getObjectSummaries()) {
+                    if (!obj.getKey().equals(prefix)) { // Skip folder placeholder object
+                        sink.accept(obj.getKey(), 0, obj.getSize()); // 0 = file
+                    }
+                }
+
+                int pageCount = result.getCommonPrefixes().size() + result.getObjectSummaries().size();
+                remaining -= pageCount;
+                listed += pageCount;
+                nextCursor = result.getNextContinuationToken();
+            } while (nextCursor != null && remaining > 0);
+
+            logger.info("Successfully streamed folder. Listed {} keys. Next cursor: {}", listed, nextCursor);
+            return nextCursor;
+
+        } catch (AmazonServiceException e) {
+            logger.error("Error streaming folder in bucket '{}': {}", bucketName, e.getMessage());
+            throw new S3StorageException("Error listing folder: " + e.getMessage(), e);
+        } catch (SdkClientException e) {
+            logger.error("SDK client error while streaming folder in bucket '{}': {}", bucketName, e.getMessage());
+            throw new S3StorageException("AWS SDK client error: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public File getAsFile(Resource resource) {
         if (resource == null) {
@@ -84,16 +143,44 @@ public class S3StorageService implements StorageService {
 
         logger.info("Downloading resource '{}' as file", resource.getId());
 
-        File tempFile;
         try {
-            tempFile = File.createTempFile("s3-", "-" + resource.getName());
-        } catch (IOException e) {
-            logger.error("Failed to create temporary file for resource '{}'", resource.getId(), e);
-            throw new S3StorageException("Failed to create temp file", e);
+            return spool(resource);
+        } catch (ObjectChangedException e) {
+            // The object was replaced after its metadata was read: look it up again and fetch the new version
+            logger.info("Resource '{}' changed since its metadata was read, downloading the current version", resource.getId());
+            try {
+                return spool(getResource(resource.getId()));
+            } catch (ObjectChangedException again) {
+                throw new StorageBusyException("Resource '" + resource.getId() + "' is being modified, try again later", again);
+            }
         }
+    }
 
+    @Override
+    public void releaseFile(File file) {
+        downloadSpool.release(file);
+    }
+
+    /**
+     * Leases a spooled copy of exactly the version described by the resource's ETag.
+     *
+     * @throws ObjectChangedException if the object no longer has that ETag
+     */
+    private File spool(Resource resource) {
+        return downloadSpool.acquire(bucketName + "/" + resource.getId(), resource.getEtag(), resource.getName(),
+                resource.getSize(), tempFile -> download(resource, tempFile));
+    }
+
+    private void download(Resource resource, File tempFile) {
+        GetObjectRequest request = new GetObjectRequest(bucketName, resource.getId());
+        if (resource.getEtag() != null) {
+            // The spool keeps the copy under this ETag, so it must hold exactly that version
+            request.withMatchingETagConstraint(resource.getEtag());
+        }
         try {
-            s3Client.getObject(new GetObjectRequest(bucketName, resource.getId()), tempFile);
+            if (s3Client.getObject(request, tempFile) == null) {
+                throw new ObjectChangedException(resource.getId());
+            }
             logger.info("Successfully downloaded resource '{}' to '{}'", resource.getId(), tempFile.getAbsolutePath());
         } catch (AmazonS3Exception e) {
             if (e.getStatusCode() == 404) {
@@ -111,8 +198,6 @@ public class S3StorageService implements StorageService {
             logger.error("Downloaded file '{}' is missing or empty", resource.getId());
             throw new S3StorageException("The downloaded file is missing or empty for resource: " + resource.getId());
         }
-
-        return tempFile;
     }
 
 
@@ -141,6 +226,39 @@ public class S3StorageService implements StorageService {
         }
     }
 
+    @Override
+    public void uploadFile(String key, File file, String contentType, LongConsumer progressListener) {
+        if (file == null || !file.isFile()) {
+            throw new IllegalArgumentException("File cannot be null and must exist");
+        }
+
+        logger.info("Uploading local file '{}' to bucket '{}' with key '{}'", file.getName(), bucketName, key);
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(file.length());
+        if (contentType != null) {
+            metadata.setContentType(contentType);
+        }
+
+        PutObjectRequest request = new PutObjectRequest(bucketName, key, file).withMetadata(metadata);
+        request.setGeneralProgressListener(event -> {
+            if (event.getEventType() == ProgressEventType.REQUEST_BYTE_TRANSFER_EVENT) {
+                progressListener.accept(event.getBytesTransferred());
+            }
+        });
+
+        try {
+            s3Client.putObject(request);
+            logger.info("Successfully uploaded file with key '{}'", key);
+        } catch (AmazonServiceException e) {
+            logger.error("AWS service error uploading file with key '{}': {}", key, e.getMessage());
+            throw new S3StorageException("Error uploading file to S3: " + e.getMessage(), e);
+        } catch (SdkClientException e) {
+            logger.error("SDK client error uploading file with key '{}': {}", key, e.getMessage());
+            throw new S3StorageException("AWS SDK client error: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public Resource getResource(String id) {
         if (id == null || id.trim().isEmpty()) {
@@ -149,11 +267,20 @@ public class S3StorageService implements StorageService {
 
         int type = id.endsWith("/") ? 1 : 0; // Determine if folder (1) or file (0)
         boolean exists;
+        long size = 0;
+        String etag = null;
 
         logger.info("Checking existence of resource '{}' in bucket '{}'", id, bucketName);
 
         try {
-            exists = (type == 0) ? s3Client.doesObjectExist(bucketName, id) : doesFolderExist(bucketName, id);
+            if (type == 0) {
+                ObjectMetadata metadata = getObjectMetadataIfExists(id);
+                exists = metadata != null;
+                size = exists ? metadata.getContentLength() : 0;
+                etag = exists ? metadata.getETag() : null;
+            } else {
+                exists = doesFolderExist(bucketName, id);
+            }
 
             if (!exists) {
                 logger.warn("Resource '{}' not found in bucket '{}'", id, bucketName);
@@ -175,9 +302,129 @@ public class S3StorageService implements StorageService {
                 .id(id)
                 .name(name)
                 .type(type)
+                .size(size)
+                .etag(etag)
                 .build();
     }
 
+    @Override
+    public int copy(String sourceId, String targetId) {
+        return copyOrMove(sourceId, targetId, false);
+    }
+
+    @Override
+    public int move(String sourceId, String targetId) {
+        return copyOrMove(sourceId, targetId, true);
+    }
+
+    private int copyOrMove(String sourceId, String targetId, boolean deleteSource) {
+        String operation = deleteSource ? "move" : "copy";
+        if (sourceId == null || sourceId.trim().isEmpty() || targetId == null || targetId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Source and target IDs cannot be null or empty");
+        }
+
+        boolean folder = sourceId.endsWith("/");
+        if (folder != targetId.endsWith("/")) {
+            throw new IllegalArgumentException("Source and target must both be files or both be folders");
+        }
+        if (sourceId.equals(targetId) || (folder && targetId.startsWith(sourceId))) {
+            throw new IllegalArgumentException("Cannot " + operation + " '" + sourceId + "' into itself");
+        }
+
+        logger.info("Server-side {} of '{}' to '{}' in bucket '{}'", operation, sourceId, targetId, bucketName);
+
+        try {
+            int count;
+            if (folder) {
+                count = objectCopier.copyPrefix(bucketName, sourceId, targetId, deleteSource);
+                if (count == 0) {
+                    throw new ResourceNotFoundException("Resource not found in bucket '" + bucketName + "' with ID: " + sourceId);
+                }
+            } else {
+                ObjectMetadata metadata = getObjectMetadataIfExists(sourceId);
+                if (metadata == null) {
+                    throw new ResourceNotFoundException("Resource not found in bucket '" + bucketName + "' with ID: " + sourceId);
+                }
+                objectCopier.copyObject(bucketName, sourceId, targetId, metadata);
+                if (deleteSource) {
+                    s3Client.deleteObject(bucketName, sourceId);
+                }
+                count = 1;
+            }
+            logger.info("Successfully completed {} of {} object(s) from '{}' to '{}'", operation, count, sourceId, targetId);
+            return count;
+
+        } catch (AmazonServiceException e) {
+            logger.error("AWS service error during {} of '{}': {}", operation, sourceId, e.getMessage());
+            throw new S3StorageException("Error during " + operation + ": " + e.getMessage(), e);
+        } catch (SdkClientException e) {
+            logger.error("SDK client error during {} of '{}': {}", operation, sourceId, e.getMessage());
+            throw new S3StorageException("AWS SDK client error: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public URL generateDownloadUrl(Resource resource, Duration expiry) {
+        if (resource == null) {
+            throw new IllegalArgumentException("Resource cannot be null");
+        }
+
+        if (resource.getType() == 1) {
+            throw new UnsupportedOperationException("Cannot download a folder as a file.");
+        }
+
+        logger.info("Generating presigned download URL for resource '{}' valid for {}", resource.getId(), expiry);
+
+        GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(bucketName, resource.getId())
+                .withMethod(HttpMethod.GET)
+                .withExpiration(Date.from(Instant.now().plus(expiry)))
+                .withResponseHeaders(new ResponseHeaderOverrides()
+                        .withContentDisposition("attachment; filename=\"" + resource.getName() + "\""));
+
+        return presign(request);
+    }
+
+    @Override
+    public URL generateUploadUrl(String key, String contentType, Duration expiry) {
+        if (key == null || key.trim().isEmpty() || key.endsWith("/")) {
+            throw new IllegalArgumentException("Upload key must be a non-empty file key");
+        }
+
+        logger.info("Generating presigned upload URL for key '{}' valid for {}", key, expiry);
+
+        GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(bucketName, key)
+                .withMethod(HttpMethod.PUT)
+                .withExpiration(Date.from(Instant.now().plus(expiry)));
+        if (contentType != null && !contentType.isBlank()) {
+            request.setContentType(contentType);
+        }
+
+        return presign(request);
+    }
+
+    private URL presign(GeneratePresignedUrlRequest request) {
+        try {
+            return s3Client.generatePresignedUrl(request);
+        } catch (SdkClientException e) {
+            logger.error("Error presigning URL for key '{}': {}", request.getKey(), e.getMessage());
+            throw new S3StorageException("Error generating presigned URL: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * HEADs a single object, returning null instead of throwing when it does not exist.
+     */
+    private ObjectMetadata getObjectMetadataIfExists(String key) {
+        try {
+            return s3Client.getObjectMetadata(bucketName, key);
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
     private boolean doesFolderExist(String bucketName, String folderKey) {
         String normalizedFolderKey = folderKey.endsWith("/") ? folderKey : folderKey + "/";
 
@@ -191,11 +438,12 @@ public class S3StorageService implements StorageService {
         return !result.getObjectSummaries().isEmpty() || !result.getCommonPrefixes().isEmpty();
     }
 
-    private Resource createResource(String key, int type) {
+    private Resource createResource(String key, int type, long size) {
         return Resource.builder()
                 .id(key)
                 .name(extractName(key))
                 .type(type)
+                .size(size)
                 .build();
     }
 
@@ -207,4 +455,13 @@ public class S3StorageService implements StorageService {
         int slashIndex = trimmed.lastIndexOf('/');
         return (slashIndex >= 0) ? trimmed.substring(slashIndex + 1) : trimmed;
     }
+
+    /**
+     * The object's ETag no longer matches the one a download was pinned to.
+     */
+    private static class ObjectChangedException extends RuntimeException {
+        ObjectChangedException(String id) {
+            super("Resource '" + id + "' changed during download");
+        }
+    }
 }
@@ -0,0 +1,277 @@
+package com.bds.awss3interface.service.spool;
+
+import com.bds.awss3interface.exception.S3StorageException;
+import com.bds.awss3interface.exception.StorageBusyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A managed directory of downloaded objects with a byte quota.
+ * <p>
+ * Every file handed out is leased: callers must {@link #release(File)} it once the response has been
+ * written, after which it is deleted (or kept for reuse, if enabled, until it expires or the object
+ * changes). When the quota
+ * is reached, new downloads wait up to the acquire timeout for space and are then refused with
+ * {@link StorageBusyException}. A background reaper removes expired copies and reclaims files whose
+ * lease was never released.
+ */
+public class DownloadSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownloadSpool.class);
+    private static final String FILE_PREFIX = "s3-";
+
+    /**
+     * Fetches object contents into the given target file.
+     */
+    @FunctionalInterface
+    public interface Downloader {
+        void download(File target);
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final boolean reuse;
+    private final Duration reuseTtl;
+    private final Duration acquireTimeout;
+    private final Duration maxLease;
+    private final ScheduledExecutorService reaper;
+
+    // All guarded by "this"
+    private final Map<File, Entry> entries = new HashMap<>();
+    private final Map<String, Entry> reusable = new HashMap<>();
+    private long reservedBytes;
+
+    public DownloadSpool(Path directory, long maxBytes, boolean reuse, Duration reuseTtl,
+                         Duration acquireTimeout, Duration maxLease, Duration reaperInterval) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.reuse = reuse;
+        this.reuseTtl = reuseTtl;
+        this.acquireTimeout = acquireTimeout;
+        this.maxLease = maxLease;
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new S3StorageException("Failed to create download spool directory: " + directory, e);
+        }
+        deleteLeftovers();
+
+        this.reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "download-spool-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = reaperInterval.toMillis();
+        reaper.scheduleWithFixedDelay(this::reap, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns a leased local copy of an object, downloading it unless a valid spooled copy can be reused.
+     * A copy is only reused while it is younger than the reuse TTL and was downloaded from the same
+     * version of the object.
+     *
+     * @param cacheKey     identifies the object (bucket and key) for reuse
+     * @param version      the object's current version (e.g. its ETag); null if unknown, which disables reuse
+     * @param name         file name used as suffix for the spooled file
+     * @param expectedSize expected content length, reserved against the quota up front (0 if unknown)
+     * @param downloader   fills the spooled file when no reusable copy exists
+     * @return The spooled file; must be passed to {@link #release(File)} when no longer needed.
+     */
+    public File acquire(String cacheKey, String version, String name, long expectedSize, Downloader downloader) {
+        Entry entry;
+        synchronized (this) {
+            if (reuse && version != null) {
+                Entry cached = reusable.get(cacheKey);
+                if (cached != null && version.equals(cached.version) && !cached.isExpired(reuseTtl)) {
+                    cached.lease();
+                    logger.info("Reusing spooled copy of '{}' at '{}'", cacheKey, cached.file);
+                    return cached.file;
+                }
+            }
+            reserve(expectedSize);
+            entry = new Entry(cacheKey, version, expectedSize);
+        }
+
+        try {
+            entry.file = Files.createTempFile(directory, FILE_PREFIX, "-" + name).toFile();
+            downloader.download(entry.file);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                reservedBytes -= entry.size;
+                notifyAll();
+            }
+            if (entry.file != null) {
+                entry.file.delete();
+            }
+            if (e instanceof IOException) {
+                logger.error("Failed to create spool file for '{}'", cacheKey, e);
+                throw new S3StorageException("Failed to create temp file", e);
+            }
+            throw (RuntimeException) e;
+        }
+
+        synchronized (this) {
+            // Account for the real size, which may differ from what the caller expected
+            reservedBytes += entry.file.length() - entry.size;
+            entry.size = entry.file.length();
+            entry.lease();
+            entries.put(entry.file, entry);
+            if (reuse && version != null) {
+                Entry previous = reusable.put(cacheKey, entry);
+                if (previous != null) {
+                    previous.superseded = true;
+                    deleteIfIdle(previous);
+                }
+            }
+        }
+        return entry.file;
+    }
+
+    /**
+     * Ends a lease obtained from {@link #acquire}. Unknown files are ignored.
+     */
+    public synchronized void release(File file) {
+        Entry entry = entries.get(file);
+        if (entry == null || entry.leases == 0) {
+            return;
+        }
+        entry.leases--;
+        entry.lastReleasedAt = Instant.now();
+        if (!reuse || entry.version == null || entry.superseded || entry.isExpired(reuseTtl)) {
+            deleteIfIdle(entry);
+        }
+    }
+
+    /**
+     * Bytes currently held by spooled files and in-flight downloads.
+     */
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * Stops the reaper and deletes every spooled file.
+     */
+    public synchronized void shutdown() {
+        reaper.shutdownNow();
+        entries.values().forEach(entry -> entry.file.delete());
+        entries.clear();
+        reusable.clear();
+        reservedBytes = 0;
+    }
+
+    private void reserve(long bytes) {
+        long deadline = System.currentTimeMillis() + acquireTimeout.toMillis();
+        while (reservedBytes > 0 && reservedBytes + bytes > maxBytes) {
+            if (evictOneIdle()) {
+                continue;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                logger.warn("Download spool quota of {} bytes exhausted ({} reserved, {} requested)",
+                        maxBytes, reservedBytes, bytes);
+                throw new StorageBusyException("Download spool is full, try again later");
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StorageBusyException("Interrupted while waiting for download spool space", e);
+            }
+        }
+        reservedBytes += bytes;
+    }
+
+    /**
+     * Deletes the least recently used copy that nobody is reading, if there is one.
+     */
+    private boolean evictOneIdle() {
+        Optional<Entry> idle = entries.values().stream()
+                .filter(entry -> entry.leases == 0)
+                .min(Comparator.comparing(entry -> entry.lastReleasedAt));
+        idle.ifPresent(this::delete);
+        return idle.isPresent();
+    }
+
+    private void deleteIfIdle(Entry entry) {
+        if (entry.leases == 0) {
+            delete(entry);
+        }
+    }
+
+    private void delete(Entry entry) {
+        entries.remove(entry.file);
+        reusable.remove(entry.cacheKey, entry);
+        reservedBytes -= entry.size;
+        if (!entry.file.delete() && entry.file.exists()) {
+            logger.warn("Could not delete spooled file '{}'", entry.file);
+        }
+        notifyAll();
+    }
+
+    private synchronized void reap() {
+        Instant leaseCutoff = Instant.now().minus(maxLease);
+        entries.values().stream()
+                .filter(entry -> entry.leases == 0 ? entry.isExpired(reuseTtl) : entry.leasedAt.isBefore(leaseCutoff))
+                .toList()
+                .forEach(entry -> {
+                    if (entry.leases > 0) {
+                        logger.warn("Reclaiming orphaned spooled file '{}' leased at {}", entry.file, entry.leasedAt);
+                    }
+                    delete(entry);
+                });
+    }
+
+    private void deleteLeftovers() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not clean download spool directory '{}': {}", directory, e.getMessage());
+        }
+    }
+
+    private static class Entry {
+        private final String cacheKey;
+        private final String version;
+        private final Instant createdAt = Instant.now();
+        private File file;
+        private long size;
+        private int leases;
+        private Instant leasedAt = createdAt;
+        private Instant lastReleasedAt = createdAt;
+        private boolean superseded;
+
+        private Entry(String cacheKey, String version, long size) {
+            this.cacheKey = cacheKey;
+            this.version = version;
+            this.size = size;
+        }
+
+        private void lease() {
+            leases++;
+            leasedAt = Instant.now();
+        }
+
+        private boolean isExpired(Duration ttl) {
+            return createdAt.plus(ttl).isBefore(Instant.now());
+        }
+    }
+}
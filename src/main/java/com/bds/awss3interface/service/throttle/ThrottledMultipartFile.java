@@ -0,0 +1,67 @@
+package com.bds.awss3interface.service.throttle;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Delegates to an uploaded file, but serves its content through a {@link TransferPermit}.
+ */
+class ThrottledMultipartFile implements MultipartFile {
+
+    private final MultipartFile delegate;
+    private final TransferPermit permit;
+
+    ThrottledMultipartFile(MultipartFile delegate, TransferPermit permit) {
+        this.delegate = delegate;
+        this.permit = permit;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return delegate.getOriginalFilename();
+    }
+
+    @Override
+    public String getContentType() {
+        return delegate.getContentType();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    public long getSize() {
+        return delegate.getSize();
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        try (InputStream in = getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return permit.throttle(delegate.getInputStream());
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        try (InputStream in = getInputStream(); OutputStream out = Files.newOutputStream(dest.toPath())) {
+            in.transferTo(out);
+        }
+    }
+}
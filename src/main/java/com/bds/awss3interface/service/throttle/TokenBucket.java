@@ -0,0 +1,38 @@
+package com.bds.awss3interface.service.throttle;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A byte-rate limiter shared by every transfer of one principal.
+ * <p>
+ * Consumers take tokens even when the bucket is empty and then sleep off the debt,
+ * so concurrent transfers of the same principal split the rate between them.
+ */
+class TokenBucket {
+
+    private final long bytesPerSecond;
+    private final double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.capacity = bytesPerSecond; // allow bursts of up to one second's worth
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    void consume(long bytes) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * bytesPerSecond / 1e9);
+            lastRefillNanos = now;
+            tokens -= bytes;
+            waitNanos = tokens < 0 ? (long) (-tokens * 1e9 / bytesPerSecond) : 0;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
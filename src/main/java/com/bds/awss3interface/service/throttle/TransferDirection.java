@@ -0,0 +1,9 @@
+package com.bds.awss3interface.service.throttle;
+
+/**
+ * Which way bytes flow through the application for a transfer.
+ */
+public enum TransferDirection {
+    DOWNLOAD,
+    UPLOAD
+}
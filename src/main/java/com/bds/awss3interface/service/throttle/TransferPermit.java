@@ -0,0 +1,79 @@
+package com.bds.awss3interface.service.throttle;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A granted transfer slot. Streams passed through {@link #throttle} are held to the principal's
+ * byte rate; closing the permit gives the slot back.
+ */
+public class TransferPermit implements Closeable {
+
+    private static final int MAX_CHUNK = 64 * 1024; // keeps sleeps short and evenly spread
+
+    private final TokenBucket bucket;
+    private final Counter bytesCounter;
+    private final Runnable onRelease;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    TransferPermit(TokenBucket bucket, Counter bytesCounter, Runnable onRelease) {
+        this.bucket = bucket;
+        this.bytesCounter = bytesCounter;
+        this.onRelease = onRelease;
+    }
+
+    /**
+     * Wraps a stream so that reading from it is rate-limited and counted.
+     */
+    public InputStream throttle(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    account(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int off, int len) throws IOException {
+                int n = super.read(buffer, off, Math.min(len, MAX_CHUNK));
+                if (n > 0) {
+                    account(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Wraps an uploaded file so that its content stream is rate-limited and counted.
+     */
+    public MultipartFile throttle(MultipartFile file) {
+        return new ThrottledMultipartFile(file, this);
+    }
+
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            onRelease.run();
+        }
+    }
+
+    private void account(int bytes) throws IOException {
+        bytesCounter.increment(bytes);
+        if (bucket == null) {
+            return;
+        }
+        try {
+            bucket.consume(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttling transfer");
+        }
+    }
+}
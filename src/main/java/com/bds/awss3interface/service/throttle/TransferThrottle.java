@@ -0,0 +1,182 @@
+package com.bds.awss3interface.service.throttle;
+
+import com.bds.awss3interface.config.TransferProperties;
+import com.bds.awss3interface.exception.StorageBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admits transfers per principal so one heavy user cannot starve everyone else.
+ * <p>
+ * Each principal gets a concurrency cap and a byte-rate token bucket, sized by their role.
+ * On top of that, a global cap bounds transfers across all users. Both are fair semaphores,
+ * so waiting transfers are admitted in arrival order, and no user can queue more than their
+ * own cap ahead of others.
+ */
+public class TransferThrottle {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferThrottle.class);
+    private static final String ROLE_PREFIX = "ROLE_";
+    private static final String DEFAULT_ROLE = "default";
+
+    private final TransferProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore globalSlots;
+    private final Map<String, PrincipalState> principals = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> activeByRole = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public TransferThrottle(TransferProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.globalSlots = new Semaphore(properties.getGlobalMaxConcurrent(), true);
+
+        Gauge.builder("s3.transfer.waiting", waiting, AtomicInteger::get)
+                .description("Transfers waiting for a slot")
+                .register(meterRegistry);
+        Gauge.builder("s3.transfer.principals", principals, Map::size)
+                .description("Principals that have transferred since startup")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits for a transfer slot for the given user.
+     *
+     * @param authentication the current user (null is treated as anonymous)
+     * @param direction      whether the transfer is a download or an upload, for metrics
+     * @return A permit that must be closed when the transfer ends.
+     * @throws StorageBusyException if no slot frees up within the acquire timeout
+     */
+    public TransferPermit acquire(Authentication authentication, TransferDirection direction) {
+        String principal = authentication != null ? authentication.getName() : "anonymous";
+        String role = resolveRole(authentication);
+        PrincipalState state = principals.computeIfAbsent(principal, name -> new PrincipalState(limitFor(role)));
+
+        long timeoutNanos = properties.getAcquireTimeout().toNanos();
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            if (!state.slots.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw reject(principal, role, "per-user limit");
+            }
+            long remaining = timeoutNanos - (System.nanoTime() - start);
+            if (!globalSlots.tryAcquire(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                state.slots.release();
+                throw reject(principal, role, "global limit");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageBusyException("Interrupted while waiting for a transfer slot", e);
+        } finally {
+            waiting.decrementAndGet();
+            Timer.builder("s3.transfer.queue.wait")
+                    .description("Time transfers spent waiting for a slot")
+                    .tag("role", role)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        AtomicInteger active = activeFor(role);
+        active.incrementAndGet();
+        Counter bytes = Counter.builder("s3.transfer.bytes")
+                .description("Bytes transferred through the application")
+                .baseUnit("bytes")
+                .tag("role", role)
+                .tag("direction", direction.name().toLowerCase())
+                .register(meterRegistry);
+
+        return new TransferPermit(state.bucket, bytes, () -> {
+            active.decrementAndGet();
+            globalSlots.release();
+            state.slots.release();
+        });
+    }
+
+    private StorageBusyException reject(String principal, String role, String limit) {
+        logger.warn("Refusing transfer for '{}' after waiting {}: {} reached", principal, properties.getAcquireTimeout(), limit);
+        Counter.builder("s3.transfer.rejected")
+                .description("Transfers refused because no slot freed up in time")
+                .tag("role", role)
+                .register(meterRegistry)
+                .increment();
+        return new StorageBusyException("Too many concurrent transfers, try again later");
+    }
+
+    private AtomicInteger activeFor(String role) {
+        return activeByRole.computeIfAbsent(role, name -> {
+            AtomicInteger active = new AtomicInteger();
+            Gauge.builder("s3.transfer.active", active, AtomicInteger::get)
+                    .description("Transfers in progress")
+                    .tag("role", name)
+                    .register(meterRegistry);
+            return active;
+        });
+    }
+
+    /**
+     * Picks the configured role that grants the most concurrency (then the highest rate).
+     */
+    private String resolveRole(Authentication authentication) {
+        if (authentication == null) {
+            return DEFAULT_ROLE;
+        }
+        String best = DEFAULT_ROLE;
+        TransferProperties.Limit bestLimit = null;
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String name = authority.getAuthority();
+            String role = name.startsWith(ROLE_PREFIX) ? name.substring(ROLE_PREFIX.length()) : name;
+            TransferProperties.Limit limit = configuredLimit(role);
+            if (limit != null && (bestLimit == null || isMorePermissive(limit, bestLimit))) {
+                best = role;
+                bestLimit = limit;
+            }
+        }
+        return best;
+    }
+
+    private TransferProperties.Limit limitFor(String role) {
+        TransferProperties.Limit limit = configuredLimit(role);
+        return limit != null ? limit : properties.getDefaults();
+    }
+
+    private TransferProperties.Limit configuredLimit(String role) {
+        return properties.getRoles().entrySet().stream()
+                .filter(entry -> entry.getKey().equalsIgnoreCase(role))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static boolean isMorePermissive(TransferProperties.Limit candidate, TransferProperties.Limit current) {
+        if (candidate.getMaxConcurrent() != current.getMaxConcurrent()) {
+            return candidate.getMaxConcurrent() > current.getMaxConcurrent();
+        }
+        return rate(candidate) > rate(current);
+    }
+
+    private static long rate(TransferProperties.Limit limit) {
+        return limit.getBytesPerSecond() <= 0 ? Long.MAX_VALUE : limit.getBytesPerSecond();
+    }
+
+    private static class PrincipalState {
+        private final Semaphore slots;
+        private final TokenBucket bucket; // null when the rate is unlimited
+
+        private PrincipalState(TransferProperties.Limit limit) {
+            this.slots = new Semaphore(limit.getMaxConcurrent(), true);
+            this.bucket = limit.getBytesPerSecond() > 0 ? new TokenBucket(limit.getBytesPerSecond()) : null;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.bds.awss3interface.service.upload;
+
+import com.bds.awss3interface.common.StorageService;
+import com.bds.awss3interface.exception.ResourceNotFoundException;
+import com.bds.awss3interface.exception.S3StorageException;
+import com.bds.awss3interface.exception.StorageBusyException;
+import com.bds.awss3interface.exception.StorageUnavailableException;
+import com.bds.awss3interface.model.UploadJob;
+import com.bds.awss3interface.model.UploadJobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accepts uploads into a local spool and drains them to storage on a bounded worker pool.
+ * <p>
+ * Callers get a job id back immediately; the job can then be polled for progress and result.
+ * When every worker is busy and the queue is full, new uploads are refused with
+ * {@link StorageBusyException} rather than spooled without bound. Failed attempts are retried when the
+ * error is transient, including while the backend's circuit breaker is open.
+ */
+public class UploadJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadJobService.class);
+    private static final String SPOOL_SUFFIX = ".part";
+
+    private final Path spoolDirectory;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration unavailableBackoff;
+    private final Duration jobRetention;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, JobState> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * @param retryBackoff       wait before a retry, multiplied by the number of attempts so far
+     * @param unavailableBackoff minimum wait before a retry while the backend is unavailable; use the circuit
+     *                           breaker's open duration so the retry does not hit the still-open circuit
+     */
+    public UploadJobService(Path spoolDirectory, int workers, int queueCapacity, int maxAttempts,
+                            Duration retryBackoff, Duration unavailableBackoff, Duration jobRetention) {
+        this.spoolDirectory = spoolDirectory;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = retryBackoff;
+        this.unavailableBackoff = unavailableBackoff;
+        this.jobRetention = jobRetention;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "upload-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        try {
+            Files.createDirectories(spoolDirectory);
+        } catch (IOException e) {
+            throw new S3StorageException("Failed to create upload spool directory: " + spoolDirectory, e);
+        }
+        deleteLeftovers();
+    }
+
+    /**
+     * Spools the uploaded file locally and queues it for upload.
+     *
+     * @param storage the storage (bucket) to upload to
+     * @param key     the S3 object key (e.g. "uploads/file.txt")
+     * @param file    the multipart file received from the client
+     * @return A snapshot of the newly queued job.
+     */
+    public UploadJob submit(StorageService storage, String key, MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("File cannot be null or empty");
+        }
+
+        purgeExpiredJobs();
+
+        // Fail fast before copying any bytes if the queue is already full
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw new StorageBusyException("Upload queue is full, try again later");
+        }
+
+        String jobId = UUID.randomUUID().toString();
+        File spoolFile = spoolDirectory.resolve(jobId + SPOOL_SUFFIX).toFile();
+        try {
+            file.transferTo(spoolFile);
+        } catch (IOException e) {
+            logger.error("Failed to spool upload for key '{}'", key, e);
+            spoolFile.delete();
+            throw new S3StorageException("Failed to spool uploaded file: " + e.getMessage(), e);
+        }
+
+        JobState job = new JobState(jobId, storage, key, file.getContentType(), spoolFile);
+        jobs.put(jobId, job);
+
+        try {
+            executor.execute(new UploadTask(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            spoolFile.delete();
+            throw new StorageBusyException("Upload queue is full, try again later", e);
+        }
+
+        logger.info("Queued upload job '{}' for key '{}' ({} bytes)", jobId, key, job.totalBytes);
+        return job.snapshot();
+    }
+
+    /**
+     * Reports the current state of a job.
+     *
+     * @param jobId the id returned by {@link #submit(StorageService, String, MultipartFile)}
+     * @return A snapshot of the job.
+     */
+    public UploadJob getJob(String jobId) {
+        JobState job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Upload job not found: " + jobId);
+        }
+        return job.snapshot();
+    }
+
+    /**
+     * Stops accepting work and waits briefly for running uploads to finish.
+     * Queued jobs that never got to run are failed and their spool files deleted.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                cancel(executor.shutdownNow());
+            }
+        } catch (InterruptedException e) {
+            cancel(executor.shutdownNow());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void cancel(List<Runnable> dropped) {
+        for (Runnable task : dropped) {
+            if (task instanceof UploadTask upload) {
+                upload.job.finish(UploadJobStatus.FAILED, "Upload cancelled by shutdown");
+                upload.job.spoolFile.delete();
+                logger.warn("Upload job '{}' for key '{}' was cancelled by shutdown", upload.job.jobId, upload.job.key);
+            }
+        }
+    }
+
+    private void run(JobState job) {
+        try {
+            while (true) {
+                job.startAttempt();
+                try {
+                    job.storage.uploadFile(job.key, job.spoolFile, job.contentType, job.bytesTransferred::addAndGet);
+                    job.finish(UploadJobStatus.COMPLETED, null);
+                    logger.info("Upload job '{}' completed after {} attempt(s)", job.jobId, job.attempts.get());
+                    return;
+                } catch (S3StorageException | StorageUnavailableException e) {
+                    boolean unavailable = e instanceof StorageUnavailableException;
+                    boolean retryable = unavailable || ((S3StorageException) e).isRetryable();
+                    if (!retryable || job.attempts.get() >= maxAttempts) {
+                        job.finish(UploadJobStatus.FAILED, e.getMessage());
+                        logger.error("Upload job '{}' failed after {} attempt(s): {}", job.jobId, job.attempts.get(), e.getMessage());
+                        return;
+                    }
+                    long backoffMillis = retryBackoff.toMillis() * job.attempts.get();
+                    if (unavailable) {
+                        backoffMillis = Math.max(backoffMillis, unavailableBackoff.toMillis());
+                    }
+                    job.status = UploadJobStatus.RETRYING;
+                    logger.warn("Upload job '{}' attempt {} failed, retrying in {} ms: {}",
+                            job.jobId, job.attempts.get(), backoffMillis, e.getMessage());
+                    Thread.sleep(backoffMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            job.finish(UploadJobStatus.FAILED, "Upload interrupted");
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            job.finish(UploadJobStatus.FAILED, e.getMessage());
+            logger.error("Upload job '{}' failed unexpectedly", job.jobId, e);
+        } finally {
+            job.spoolFile.delete();
+        }
+    }
+
+    /**
+     * Removes spool files left behind by a previous run that was killed before it could clean up.
+     */
+    private void deleteLeftovers() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDirectory, "*" + SPOOL_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not clean upload spool directory '{}': {}", spoolDirectory, e.getMessage());
+        }
+    }
+
+    private void purgeExpiredJobs() {
+        Instant cutoff = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    /**
+     * The queued unit of work; keeps a handle on its job so jobs dropped at shutdown can be cleaned up.
+     */
+    private class UploadTask implements Runnable {
+        private final JobState job;
+
+        private UploadTask(JobState job) {
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            UploadJobService.this.run(job);
+        }
+    }
+
+    /**
+     * Mutable bookkeeping for one job; only the worker thread writes to it.
+     */
+    private static class JobState {
+        private final String jobId;
+        private final StorageService storage;
+        private final String key;
+        private final String contentType;
+        private final File spoolFile;
+        private final long totalBytes;
+        private final Instant submittedAt = Instant.now();
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final AtomicLong bytesTransferred = new AtomicLong();
+        private volatile UploadJobStatus status = UploadJobStatus.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private JobState(String jobId, StorageService storage, String key, String contentType, File spoolFile) {
+            this.jobId = jobId;
+            this.storage = storage;
+            this.key = key;
+            this.contentType = contentType;
+            this.spoolFile = spoolFile;
+            this.totalBytes = spoolFile.length();
+        }
+
+        private void startAttempt() {
+            attempts.incrementAndGet();
+            bytesTransferred.set(0);
+            startedAt = Instant.now();
+            status = UploadJobStatus.RUNNING;
+        }
+
+        private void finish(UploadJobStatus finalStatus, String failure) {
+            error = failure;
+            finishedAt = Instant.now();
+            status = finalStatus;
+        }
+
+        private UploadJob snapshot() {
+            long transferred = bytesTransferred.get();
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            long elapsedMillis = startedAt != null ? Duration.between(startedAt, end).toMillis() : 0;
+
+            return UploadJob.builder()
+                    .jobId(jobId)
+                    .key(key)
+                    .status(status)
+                    .totalBytes(totalBytes)
+                    .bytesTransferred(transferred)
+                    .bytesPerSecond(elapsedMillis > 0 ? transferred * 1000 / elapsedMillis : 0)
+                    .attempts(attempts.get())
+                    .submittedAt(submittedAt.toString())
+                    .startedAt(startedAt != null ? startedAt.toString() : null)
+                    .finishedAt(finishedAt != null ? finishedAt.toString() : null)
+                    .error(error)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.bds.awss3interface.service.warmup;
+
+import com.bds.awss3interface.common.StorageService;
+import com.bds.awss3interface.config.WarmupProperties;
+import com.bds.awss3interface.service.routing.StorageBackend;
+import com.bds.awss3interface.service.routing.StorageBackends;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the application up before it reports itself ready.
+ * <p>
+ * Spring Boot publishes the readiness state only after all {@link ApplicationRunner}s have returned,
+ * so while this runs the instance stays out of the load balancer. The warm-up
+ * <ol>
+ *     <li>opens pooled connections to every backend with parallel {@code HEAD} bucket requests,</li>
+ *     <li>lists the configured hot prefixes and fetches the configured keys, which exercises request signing
+ *     and XML parsing and fills the listing and metadata caches, and</li>
+ *     <li>runs a few password checks so the first logins don't pay for a cold password encoder.</li>
+ * </ol>
+ * Failures are logged and never stop startup: a backend that is down should not keep the instance from
+ * serving the others.
+ */
+public class StorageWarmup implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageWarmup.class);
+
+    private final StorageService storageService;
+    private final StorageBackends storageBackends;
+    private final PasswordEncoder passwordEncoder;
+    private final WarmupProperties properties;
+
+    public StorageWarmup(StorageService storageService, StorageBackends storageBackends,
+                         PasswordEncoder passwordEncoder, WarmupProperties properties) {
+        this.storageService = storageService;
+        this.storageBackends = storageBackends;
+        this.passwordEncoder = passwordEncoder;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            logger.info("Startup warm-up is disabled");
+            return;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + properties.getTimeout().toNanos();
+        List<StorageBackend> backends = storageBackends.getBackends();
+        int connections = Math.max(1, properties.getConnections());
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(connections * backends.size(), runnable -> {
+            Thread thread = new Thread(runnable, "storage-warmup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Callable<Void>> pings = new ArrayList<>();
+            for (StorageBackend backend : backends) {
+                for (int i = 0; i < connections; i++) {
+                    pings.add(task("connect to backend '" + backend.getName() + "'", backend::ping));
+                }
+            }
+            int failed = runAll(executor, pings, deadline);
+
+            List<Callable<Void>> reads = new ArrayList<>();
+            for (String prefix : properties.getPrefixes()) {
+                reads.add(task("list '" + prefix + "'",
+                        () -> storageService.listFolder(storageService.getResource(prefix), null)));
+            }
+            for (String key : properties.getKeys()) {
+                reads.add(task("fetch '" + key + "'", () -> storageService.getResource(key)));
+            }
+            Future<?> passwords = executor.submit(this::checkPasswords);
+            failed += runAll(executor, reads, deadline);
+            passwords.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+
+            logger.info("Startup warm-up of {} backend(s) finished in {} ms ({} step(s) failed)",
+                    backends.size(), Duration.ofNanos(System.nanoTime() - start).toMillis(), failed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            logger.warn("Startup warm-up did not finish within {}", properties.getTimeout());
+        } catch (ExecutionException e) {
+            logger.warn("Password encoder warm-up failed: {}", e.getCause().getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int runAll(ExecutorService executor, List<Callable<Void>> tasks, long deadline) throws InterruptedException {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        int failed = 0;
+        for (Future<Void> future : executor.invokeAll(tasks, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            if (future.isCancelled()) {
+                failed++;
+                continue;
+            }
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private Callable<Void> task(String description, Runnable step) {
+        return () -> {
+            try {
+                step.run();
+            } catch (RuntimeException e) {
+                logger.warn("Warm-up step failed: {}: {}", description, e.getMessage());
+                throw e;
+            }
+            return null;
+        };
+    }
+
+    private void checkPasswords() {
+        String encoded = passwordEncoder.encode("warm-up");
+        for (int i = 0; i < properties.getPasswordChecks(); i++) {
+            passwordEncoder.matches("warm-up", encoded);
+        }
+    }
+}
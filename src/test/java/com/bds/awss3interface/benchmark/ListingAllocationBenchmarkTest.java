@@ -0,0 +1,122 @@
+package com.bds.awss3interface.benchmark;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.bds.awss3interface.controller.ListingJsonWriter;
+import com.bds.awss3interface.model.ListResult;
+import com.bds.awss3interface.model.Resource;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A serialiser-only micro-benchmark: compares the heap allocated per listed key by building a
+ * {@link ListResult} of {@link Resource}s for a plain {@link ObjectMapper} to serialise, and by
+ * writing entries straight out with {@link ListingJsonWriter}.
+ * <p>
+ * It does not measure the endpoints. Both sides start from an already parsed {@link S3ObjectSummary}
+ * list, so the SDK's response parsing (the same for either endpoint) is left out. The buffered side is
+ * a hand-written equivalent of {@code listFolder} rather than the controller path with Spring's
+ * configured mapper and message converter, and no servlet response or security filters are involved.
+ * The numbers show what the streaming writer saves in serialisation, not per-request allocation.
+ * <p>
+ * Allocation is read from the JVM's per-thread counter, so the numbers are exact rather than sampled.
+ * <p>
+ * The JSON comparison always runs; the allocation measurement only when asked for, e.g.
+ * {@code mvn test -Dtest=ListingAllocationBenchmarkTest -Dbenchmark=true}.
+ */
+public class ListingAllocationBenchmarkTest {
+
+    private static final int KEYS = 10_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 20;
+
+    // Every round writes to the same sink, which the mapper would otherwise close after the first one
+    private final ObjectMapper objectMapper = new ObjectMapper().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final List<S3ObjectSummary> summaries = createSummaries();
+
+    @Test
+    public void streamingProducesSameJsonAsListResult() throws IOException {
+        assertEquals(serialiseListResult(new ByteArrayOutputStream()), streamListing(new ByteArrayOutputStream()),
+                "Both paths must produce the same JSON");
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void streamingAllocatesLessPerListedKey() throws IOException {
+        double buffered = bytesPerKey(this::serialiseListResult);
+        double streamed = bytesPerKey(this::streamListing);
+
+        System.out.printf("Listing allocation per key over %d keys: ListResult + Jackson %.1f B, streaming %.1f B%n",
+                KEYS, buffered, streamed);
+        assertTrue(streamed < buffered, "Streaming should allocate less per key than building a ListResult");
+    }
+
+    private double bytesPerKey(ListingPath path) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        OutputStream out = OutputStream.nullOutputStream();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            path.write(out);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            path.write(out);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        return (double) allocated / MEASURED_ROUNDS / KEYS;
+    }
+
+    /**
+     * What {@code listFolder} plus controller serialisation does: one Resource (and name string) per key.
+     */
+    private String serialiseListResult(OutputStream out) throws IOException {
+        List<Resource> resources = new ArrayList<>();
+        for (S3ObjectSummary summary : summaries) {
+            String key = summary.getKey();
+            resources.add(Resource.builder()
+                    .id(key)
+                    .name(key.substring(key.lastIndexOf('/') + 1))
+                    .type(0)
+                    .size(summary.getSize())
+                    .build());
+        }
+        objectMapper.writeValue(out, ListResult.<Resource>builder().resources(resources).cursor("next").build());
+        return out instanceof ByteArrayOutputStream bytes ? bytes.toString(StandardCharsets.UTF_8) : null;
+    }
+
+    private String streamListing(OutputStream out) throws IOException {
+        ListingJsonWriter writer = new ListingJsonWriter(objectMapper.getFactory(), out);
+        for (S3ObjectSummary summary : summaries) {
+            writer.accept(summary.getKey(), 0, summary.getSize());
+        }
+        writer.finish("next");
+        return out instanceof ByteArrayOutputStream bytes ? bytes.toString(StandardCharsets.UTF_8) : null;
+    }
+
+    private static List<S3ObjectSummary> createSummaries() {
+        List<S3ObjectSummary> summaries = new ArrayList<>(KEYS);
+        for (int i = 0; i < KEYS; i++) {
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setKey("reports/2024/daily/report-" + i + ".csv");
+            summary.setSize(1024L * i);
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    @FunctionalInterface
+    private interface ListingPath {
+        String write(OutputStream out) throws IOException;
+    }
+}
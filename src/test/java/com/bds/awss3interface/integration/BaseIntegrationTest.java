@@ -1,8 +1,7 @@
 package com.bds.awss3interface.integration;
 
 import com.amazonaws.services.s3.AmazonS3;
-import org.junit.jupiter.api.AfterAll;
-import org.junit.jupiter.api.BeforeAll;
+import com.bds.awss3interface.stub.S3StubServer;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -14,49 +13,65 @@ import org.testcontainers.utility.DockerImageName;
 
 /**
  * Base class for integration tests.
- * Sets up a MinIO container and configures Spring properties accordingly.
+ * Starts the S3 backend and configures Spring properties accordingly.
+ * <p>
+ * By default the backend is the in-process {@link S3StubServer}, so the suite runs without Docker or network
+ * access. Run with {@code -Ds3.test.backend=minio} to test against a real MinIO container instead.
+ * Either backend is started once per JVM and shared by all test classes, matching Spring's context cache.
  */
 @SpringBootTest
 @ActiveProfiles("test")
 public abstract class BaseIntegrationTest {
 
-    @Autowired
-    private AmazonS3 amazonS3;
+    protected static final boolean USE_MINIO = "minio".equalsIgnoreCase(System.getProperty("s3.test.backend"));
 
-    static MinIOContainer minioContainer = new MinIOContainer(DockerImageName.parse("minio/minio:latest"))
-            .withUserName("admin")
-            .withPassword("admin123");
+    protected static final S3StubServer s3Stub;
 
-    @BeforeAll
-    static void setUp() {
-        minioContainer.start();
-    }
+    static MinIOContainer minioContainer;
 
-    @AfterAll
-    static void tearDown() {
-        minioContainer.stop();
+    static {
+        if (USE_MINIO) {
+            s3Stub = null;
+            minioContainer = new MinIOContainer(DockerImageName.parse("minio/minio:latest"))
+                    .withUserName("admin")
+                    .withPassword("admin123");
+            minioContainer.start(); // stopped by Testcontainers when the JVM exits
+        } else {
+            s3Stub = S3StubServer.start();
+            s3Stub.createBucket("qteam-solutions"); // before the context starts, so the startup warm-up finds them
+            s3Stub.createBucket("qteam-archive");
+        }
     }
 
+    @Autowired
+    private AmazonS3 amazonS3;
+
     /**
-     * Ensures the S3/MinIO bucket exists before each test.
+     * Ensures the S3/MinIO buckets exist before each test.
      */
     @BeforeEach
     void ensureBucketExists() {
-        if (!amazonS3.doesBucketExistV2("qteam-solutions")) {
-            amazonS3.createBucket("qteam-solutions");
+        for (String bucket : new String[]{"qteam-solutions", "qteam-archive"}) {
+            if (!amazonS3.doesBucketExistV2(bucket)) {
+                amazonS3.createBucket(bucket);
+            }
         }
     }
 
     /**
-     * Dynamically registers properties for the Spring context based on the MinIO container.
+     * Dynamically registers properties for the Spring context based on the S3 backend.
      *
      * @param registry the dynamic property registry
      */
     @DynamicPropertySource
     static void registerProperties(DynamicPropertyRegistry registry) {
-        registry.add("s3.endpoint", minioContainer::getS3URL);
-        registry.add("s3.access-key", minioContainer::getUserName);
-        registry.add("s3.secret-key", minioContainer::getPassword);
+        if (USE_MINIO) {
+            registry.add("s3.endpoint", minioContainer::getS3URL);
+            registry.add("s3.access-key", minioContainer::getUserName);
+            registry.add("s3.secret-key", minioContainer::getPassword);
+        } else {
+            registry.add("s3.endpoint", s3Stub::getEndpoint);
+        }
         registry.add("s3.bucket", () -> "qteam-solutions");
     }
 }
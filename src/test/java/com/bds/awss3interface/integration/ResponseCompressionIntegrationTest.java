@@ -0,0 +1,108 @@
+package com.bds.awss3interface.integration;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for response compression, with the settings of the dev and production profiles.
+ * Uses a real HTTP client, as MockMvc bypasses the servlet container that does the compressing.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.compression.enabled=true",
+        "server.compression.mime-types=application/json",
+        "server.compression.min-response-size=2048"
+})
+public class ResponseCompressionIntegrationTest extends BaseIntegrationTest {
+
+    private static final String BUCKET = "qteam-solutions";
+    private static final String FOLDER = "compressed/";
+    private static final int FILES = 200; // well past the response buffer, so the listing is streamed
+    private static final String AUTHORIZATION = "Basic " + Base64.getEncoder()
+            .encodeToString("user:user123".getBytes(StandardCharsets.UTF_8));
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AmazonS3 amazonS3;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void createFiles() {
+        if (amazonS3.listObjectsV2(BUCKET, FOLDER).getKeyCount() < FILES) {
+            for (int i = 0; i < FILES; i++) {
+                amazonS3.putObject(BUCKET, String.format("%sreport-%03d.json", FOLDER, i), "{}");
+            }
+        }
+    }
+
+    /**
+     * Verifies that a long streamed listing is gzip-compressed when the client accepts it, and then has no
+     * Content-Length because it is compressed on the fly.
+     */
+    @Test
+    public void streamedListingIsGzippedWhenAccepted() throws Exception {
+        HttpResponse<InputStream> response = get(streamUri(), "gzip");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        assertTrue(response.headers().firstValue("Content-Length").isEmpty(), "A compressed stream has no length");
+        assertTrue(response.headers().allValues("Vary").stream().anyMatch(vary -> vary.toLowerCase().contains("accept-encoding")));
+        try (InputStream body = new GZIPInputStream(response.body())) {
+            assertEquals(FILES, readListing(body).get("resources").size());
+        }
+    }
+
+    /**
+     * Verifies that the same listing is sent uncompressed to a client that does not ask for gzip.
+     */
+    @Test
+    public void streamedListingIsPlainWithoutAcceptEncoding() throws Exception {
+        HttpResponse<InputStream> response = get(streamUri(), null);
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty());
+        try (InputStream body = response.body()) {
+            assertEquals(FILES, readListing(body).get("resources").size());
+        }
+    }
+
+    private URI streamUri() {
+        return URI.create("http://localhost:" + port + "/api/s3/files/list/folder/stream?folderId=" + FOLDER
+                + "&pageSize=" + FILES);
+    }
+
+    private HttpResponse<InputStream> get(URI uri, String acceptEncoding) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri).header("Authorization", AUTHORIZATION);
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private JsonNode readListing(InputStream body) throws IOException {
+        return objectMapper.readTree(body);
+    }
+}
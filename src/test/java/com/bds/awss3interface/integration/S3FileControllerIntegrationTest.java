@@ -1,21 +1,45 @@
 package com.bds.awss3interface.integration;
 
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.bds.awss3interface.model.ListResult;
 import com.bds.awss3interface.model.Resource;
+import com.bds.awss3interface.service.resilience.CircuitBreaker;
+import com.bds.awss3interface.service.resilience.ResilientStorageService;
+import com.bds.awss3interface.service.routing.StorageBackend;
+import com.bds.awss3interface.service.routing.StorageBackends;
+import com.bds.awss3interface.service.spool.DownloadSpool;
+import com.bds.awss3interface.service.throttle.TransferDirection;
+import com.bds.awss3interface.service.throttle.TransferPermit;
+import com.bds.awss3interface.service.throttle.TransferThrottle;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -32,6 +56,21 @@ public class S3FileControllerIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private DownloadSpool downloadSpool;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StorageBackends storageBackends;
+
+    @Autowired
+    private TransferThrottle transferThrottle;
+
+    @Autowired
+    private AmazonS3 amazonS3;
+
     @Value("${s3.bucket}")
     private static String bucketName;
 
@@ -124,4 +163,424 @@ public class S3FileControllerIntegrationTest extends BaseIntegrationTest {
                 .andExpect(jsonPath("$.resources", hasSize(greaterThanOrEqualTo(1)))) // Ensure at least one file is returned
                 .andExpect(jsonPath("$.cursor", anyOf(nullValue(), emptyOrNullString()))); // Verify last page has null/empty cursor
     }
+
+    /**
+     * Verifies that a forced redirect download answers 302 with a presigned URL that serves the file directly.
+     */
+    @Test
+    @WithMockUser(username = "user", roles = {"USER"})
+    public void downloadCanRedirectToPresignedUrl() throws Exception {
+        String key = UPLOADS_PREFIX + "presigned-download.txt";
+        byte[] content = "Presigned download content".getBytes(StandardCharsets.UTF_8);
+        mockMvc.perform(multipart("/api/s3/files/upload")
+                        .file(new MockMultipartFile("file", "presigned-download.txt", MediaType.TEXT_PLAIN_VALUE, content))
+                        .param("key", key)
+                        .with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk());
+
+        String location = mockMvc.perform(get("/api/s3/files/download")
+                        .param("id", key)
+                        .param("redirect", "true"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", containsString("X-Amz-Signature")))
+                .andReturn()
+                .getResponse()
+                .getHeader("Location");
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(location).openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            assertEquals(200, connection.getResponseCode());
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+
+    /**
+     * Verifies that an ADMIN user can obtain a presigned PUT URL and upload through it directly.
+     */
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    public void adminCanUploadThroughPresignedUrl() throws Exception {
+        String key = UPLOADS_PREFIX + "presigned-upload.txt";
+
+        String response = mockMvc.perform(post("/api/s3/files/upload/presigned")
+                        .param("key", key)
+                        .param("contentType", MediaType.TEXT_PLAIN_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.method", is("PUT")))
+                .andExpect(jsonPath("$.url", containsString("X-Amz-Signature")))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String url = objectMapper.readTree(response).get("url").asText();
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("PUT");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", MediaType.TEXT_PLAIN_VALUE);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write("Uploaded via presigned URL".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(200, connection.getResponseCode());
+
+        mockMvc.perform(get("/api/s3/files/resource").param("id", key))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size", is(26)));
+    }
+
+    /**
+     * Ensures that a USER role cannot obtain a presigned upload URL (403 Forbidden).
+     */
+    @Test
+    @WithMockUser(username = "user")
+    public void userCannotPresignUpload() throws Exception {
+        mockMvc.perform(post("/api/s3/files/upload/presigned")
+                        .param("key", UPLOADS_PREFIX + "forbidden.txt"))
+                .andExpect(status().isForbidden());
+    }
+
+    /**
+     * Verifies that an asynchronous upload is accepted with 202 and eventually reported as completed.
+     */
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    public void adminCanUploadFileAsynchronously() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "testfile_async.txt",
+                MediaType.TEXT_PLAIN_VALUE,
+                "This is an asynchronous upload".getBytes()
+        );
+
+        String response = mockMvc.perform(multipart("/api/s3/files/upload/async")
+                        .file(file)
+                        .param("key", UPLOADS_PREFIX + "testfile_async.txt"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", containsString("/api/s3/files/upload/jobs/")))
+                .andExpect(jsonPath("$.jobId", not(emptyOrNullString())))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String jobId = objectMapper.readTree(response).get("jobId").asText();
+
+        String status = null;
+        for (int i = 0; i < 50 && !"COMPLETED".equals(status) && !"FAILED".equals(status); i++) {
+            Thread.sleep(100);
+            String job = mockMvc.perform(get("/api/s3/files/upload/jobs/" + jobId))
+                    .andExpect(status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+            status = objectMapper.readTree(job).get("status").asText();
+        }
+        assertEquals("COMPLETED", status);
+
+        mockMvc.perform(get("/api/s3/files/resource").param("id", UPLOADS_PREFIX + "testfile_async.txt"))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Verifies that a streamed download returns the file contents, hands its spool space back afterwards
+     * and is counted in the transfer metrics.
+     */
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    public void downloadReleasesSpooledFile() throws Exception {
+        String key = UPLOADS_PREFIX + "spooled-download.txt";
+        byte[] content = "Spooled download content".getBytes(StandardCharsets.UTF_8);
+        mockMvc.perform(multipart("/api/s3/files/upload")
+                        .file(new MockMultipartFile("file", "spooled-download.txt", MediaType.TEXT_PLAIN_VALUE, content))
+                        .param("key", key))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/s3/files/download").param("id", key))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", containsString("spooled-download.txt")))
+                .andExpect(content().bytes(content));
+
+        assertEquals(0, downloadSpool.getReservedBytes());
+        assertEquals(0, meterRegistry.get("s3.transfer.active").gauge().value());
+        assertTrue(meterRegistry.get("s3.transfer.bytes").tag("direction", "download").counter().count() >= content.length);
+    }
+
+    /**
+     * Verifies that streamed downloads honour HTTP Range requests and still hand their spool space back.
+     */
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    public void downloadSupportsRangeRequests() throws Exception {
+        String key = UPLOADS_PREFIX + "ranged-download.txt";
+        byte[] content = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+        mockMvc.perform(multipart("/api/s3/files/upload")
+                        .file(new MockMultipartFile("file", "ranged-download.txt", MediaType.TEXT_PLAIN_VALUE, content))
+                        .param("key", key))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/s3/files/download").param("id", key))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Accept-Ranges", "bytes"));
+
+        mockMvc.perform(get("/api/s3/files/download").param("id", key).header("Range", "bytes=10-14"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 10-14/20"))
+                .andExpect(content().string("abcde"));
+
+        mockMvc.perform(get("/api/s3/files/download").param("id", key).header("Range", "bytes=0-1,18-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string(allOf(containsString("01"), containsString("ij"))));
+
+        mockMvc.perform(get("/api/s3/files/download").param("id", key).header("Range", "bytes=50-60"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+
+        assertEquals(0, downloadSpool.getReservedBytes());
+        assertEquals(0, meterRegistry.get("s3.transfer.active").gauge().value());
+    }
+
+    /**
+     * Verifies that a download past the user's concurrency limit waits for the acquire timeout and is then
+     * refused with 503 and Retry-After, and that it goes through once the other transfer has finished.
+     */
+    @Test
+    @WithMockUser(username = "limited-user")
+    public void downloadPastConcurrencyLimitIsRefused() throws Exception {
+        String key = UPLOADS_PREFIX + "limited-download.txt";
+        mockMvc.perform(multipart("/api/s3/files/upload")
+                        .file(new MockMultipartFile("file", "limited-download.txt", MediaType.TEXT_PLAIN_VALUE,
+                                "Limited content".getBytes(StandardCharsets.UTF_8)))
+                        .param("key", key)
+                        .with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk());
+
+        // Occupy the single transfer slot USER gets in the test profile
+        TransferPermit running = transferThrottle.acquire(new UsernamePasswordAuthenticationToken("limited-user", null,
+                AuthorityUtils.createAuthorityList("ROLE_USER")), TransferDirection.DOWNLOAD);
+        try {
+            long start = System.currentTimeMillis();
+            mockMvc.perform(get("/api/s3/files/download").param("id", key))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().exists("Retry-After"))
+                    .andExpect(jsonPath("$.code").value("SERVICE_BUSY"));
+            assertTrue(System.currentTimeMillis() - start >= 1000, "Should wait s3.transfer.acquire-timeout first");
+        } finally {
+            running.close();
+        }
+
+        mockMvc.perform(get("/api/s3/files/download").param("id", key))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Limited content"));
+    }
+
+    /**
+     * Verifies that a file above the multipart threshold is copied server-side with its full size.
+     */
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    public void adminCanCopyLargeFile() throws Exception {
+        byte[] content = new byte[6 * 1024 * 1024 + 123];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        mockMvc.perform(multipart("/api/s3/files/upload")
+                        .file(new MockMultipartFile("file", "large.bin", MediaType.APPLICATION_OCTET_STREAM_VALUE, content))
+                        .param("key", "copy-source/large.bin"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/s3/files/copy")
+                        .param("sourceId", "copy-source/large.bin")
+                        .param("targetId", "copy-target/large.bin"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Copied 1 object(s)")));
+
+        mockMvc.perform(get("/api/s3/files/resource").param("id", "copy-target/large.bin"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size", is(content.length)));
+    }
+
+    /**
+     * Verifies that copies keep the source's headers and user metadata, whether they are made with a single
+     * copy or, above the multipart threshold, part by part.
+     */
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    public void copiedFilesKeepTheirMetadata() throws Exception {
+        for (int length : new int[]{100, 6 * 1024 * 1024 + 123}) {
+            String sourceKey = "metadata-source/" + length + ".bin";
+            String targetKey = "metadata-target/" + length + ".bin";
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentType("application/pdf");
+            metadata.setContentDisposition("attachment; filename=\"report.pdf\"");
+            metadata.setCacheControl("max-age=3600");
+            metadata.setContentLanguage("de");
+            metadata.addUserMetadata("owner", "qteam");
+            metadata.setContentLength(length);
+            amazonS3.putObject(new PutObjectRequest("qteam-solutions", sourceKey,
+                    new ByteArrayInputStream(new byte[length]), metadata));
+
+            mockMvc.perform(post("/api/s3/files/copy")
+                            .param("sourceId", sourceKey)
+                            .param("targetId", targetKey))
+                    .andExpect(status().isOk());
+
+            ObjectMetadata copied = amazonS3.getObjectMetadata("qteam-solutions", targetKey);
+            assertEquals(length, copied.getContentLength());
+            assertEquals("application/pdf", copied.getContentType());
+            assertEquals("attachment; filename=\"report.pdf\"", copied.getContentDisposition());
+            assertEquals("max-age=3600", copied.getCacheControl());
+            assertEquals("de", copied.getContentLanguage());
+            assertEquals(Map.of("owner", "qteam"), copied.getUserMetadata());
+        }
+    }
+
+    /**
+     * Verifies that moving a folder relocates every object and removes the sources.
+     */
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    public void adminCanMoveFolder() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(multipart("/api/s3/files/upload")
+                            .file(new MockMultipartFile("file", "move-" + i + ".txt", MediaType.TEXT_PLAIN_VALUE,
+                                    ("Move content " + i).getBytes(StandardCharsets.UTF_8)))
+                            .param("key", "move-source/nested/move-" + i + ".txt"))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(post("/api/s3/files/move")
+                        .param("sourceId", "move-source/")
+                        .param("targetId", "move-target/"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Moved 3 object(s)")));
+
+        mockMvc.perform(get("/api/s3/files/resource").param("id", "move-target/nested/move-2.txt"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/s3/files/resource").param("id", "move-source/"))
+                .andExpect(status().isNotFound());
+    }
+
+    /**
+     * Ensures that a USER role cannot copy files (403 Forbidden).
+     */
+    @Test
+    @WithMockUser(username = "user")
+    public void userCannotCopyFile() throws Exception {
+        mockMvc.perform(post("/api/s3/files/copy")
+                        .param("sourceId", UPLOADS_PREFIX + "testfile_upload.txt")
+                        .param("targetId", UPLOADS_PREFIX + "copy.txt"))
+                .andExpect(status().isForbidden());
+    }
+
+    /**
+     * Verifies that keys under a backend's prefix are stored in that backend's bucket,
+     * and that a bucket can also be chosen explicitly.
+     */
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    public void keysAreRoutedToBackendByPrefix() throws Exception {
+        mockMvc.perform(multipart("/api/s3/files/upload")
+                        .file(new MockMultipartFile("file", "routed.txt", MediaType.TEXT_PLAIN_VALUE,
+                                "Routed content".getBytes(StandardCharsets.UTF_8)))
+                        .param("key", "archive/routed.txt"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/s3/files/resource")
+                        .param("id", "archive/routed.txt")
+                        .param("bucket", "archive"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/s3/files/resource")
+                        .param("id", "archive/routed.txt")
+                        .param("bucket", "qteam-solutions"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/s3/files/resource")
+                        .param("id", "archive/routed.txt")
+                        .param("bucket", "no-such-bucket"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Verifies that metadata is served stale while a backend's circuit is open, that writes fail fast,
+     * and that the background probe closes the circuit again.
+     */
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    public void staleMetadataIsServedWhileCircuitIsOpen() throws Exception {
+        mockMvc.perform(multipart("/api/s3/files/upload")
+                        .file(new MockMultipartFile("file", "stale.txt", MediaType.TEXT_PLAIN_VALUE,
+                                "Stale content".getBytes(StandardCharsets.UTF_8)))
+                        .param("key", "archive/stale.txt"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/s3/files/resource").param("id", "archive/stale.txt"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Warning"));
+
+        CircuitBreaker circuitBreaker = storageBackends.getBackends().stream()
+                .filter(backend -> backend.getName().equals("archive"))
+                .map(StorageBackend::getStorageService)
+                .map(service -> ((ResilientStorageService) service).getCircuitBreaker())
+                .findFirst()
+                .orElseThrow();
+        for (int i = 0; i < 2; i++) { // s3.resilience.failure-threshold in the test profile
+            circuitBreaker.recordFailure();
+        }
+        assertTrue(circuitBreaker.isOpen());
+
+        mockMvc.perform(get("/api/s3/files/resource").param("id", "archive/stale.txt"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Warning", containsString("110")))
+                .andExpect(header().exists("Age"))
+                .andExpect(jsonPath("$.id").value("archive/stale.txt"));
+        mockMvc.perform(multipart("/api/s3/files/upload")
+                        .file(new MockMultipartFile("file", "stale-2.txt", MediaType.TEXT_PLAIN_VALUE,
+                                "Rejected content".getBytes(StandardCharsets.UTF_8)))
+                        .param("key", "archive/stale-2.txt"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists("Retry-After"));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (circuitBreaker.isOpen() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    /**
+     * Verifies that streamed listings match the regular listing format and paginate with a custom page size.
+     */
+    @Test
+    @WithMockUser(username = "user")
+    public void folderListingCanBeStreamed() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(multipart("/api/s3/files/upload")
+                            .file(new MockMultipartFile("file", "stream-" + i + ".txt", MediaType.TEXT_PLAIN_VALUE,
+                                    ("Stream content " + i).getBytes(StandardCharsets.UTF_8)))
+                            .param("key", "stream/stream-" + i + ".txt")
+                            .with(user("admin").roles("ADMIN")))
+                    .andExpect(status().isOk());
+        }
+
+        String firstPage = mockMvc.perform(get("/api/s3/files/list/folder/stream")
+                        .param("folderId", "stream/")
+                        .param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.resources", hasSize(2)))
+                .andExpect(jsonPath("$.resources[0].id").value("stream/stream-1.txt"))
+                .andExpect(jsonPath("$.resources[0].name").value("stream-1.txt"))
+                .andExpect(jsonPath("$.resources[0].type").value(0))
+                .andExpect(jsonPath("$.resources[0].size").value(16))
+                .andExpect(jsonPath("$.cursor", not(emptyOrNullString())))
+                .andReturn().getResponse().getContentAsString();
+
+        ListResult<?> page = objectMapper.readValue(firstPage, ListResult.class);
+        mockMvc.perform(get("/api/s3/files/list/folder/stream")
+                        .param("folderId", "stream/")
+                        .param("cursor", page.getCursor()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resources", hasSize(1)))
+                .andExpect(jsonPath("$.resources[0].name").value("stream-3.txt"))
+                .andExpect(jsonPath("$.cursor").value(nullValue()));
+
+        mockMvc.perform(get("/api/s3/files/list/folder/stream")
+                        .param("folderId", "stream/")
+                        .param("pageSize", "0"))
+                .andExpect(status().isBadRequest());
+    }
 }
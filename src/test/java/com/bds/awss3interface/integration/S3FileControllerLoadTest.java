@@ -0,0 +1,270 @@
+package com.bds.awss3interface.integration;
+
+import com.bds.awss3interface.stub.S3StubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Load-test harness: drives S3FileController over real HTTP against the in-process {@link S3StubServer}
+ * and reports throughput and latency percentiles per request type.
+ * <p>
+ * Only runs when asked for, e.g. {@code mvn test -Dtest=S3FileControllerLoadTest -Dloadtest=true}. Tunables
+ * (system properties): {@code loadtest.threads} (16), {@code loadtest.warmup} (PT5S), {@code loadtest.duration}
+ * (PT20S), {@code loadtest.objects} (200), {@code loadtest.object-size} (65536 bytes), and the stub's injected
+ * {@code loadtest.latency-ms} (5), {@code loadtest.jitter-ms} (5) and {@code loadtest.failure-rate} (0).
+ * <p>
+ * Per-user transfer limits are raised so the numbers reflect the request path rather than the throttle.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "s3.transfer.global-max-concurrent=256",
+        "s3.transfer.defaults.max-concurrent=256",
+        "s3.resilience.failure-threshold=20",
+        "logging.level.com.bds.awss3interface=WARN"
+})
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class S3FileControllerLoadTest extends BaseIntegrationTest {
+
+    private static final String BUCKET = "qteam-solutions";
+    private static final String FOLDER = "load/";
+    private static final String AUTHORIZATION = "Basic " + Base64.getEncoder()
+            .encodeToString("admin:admin123".getBytes(StandardCharsets.UTF_8));
+
+    private enum Scenario {
+        RESOURCE(40),
+        LIST(25),
+        STREAM_LIST(5),
+        DOWNLOAD(20),
+        UPLOAD(10);
+
+        private final int weight;
+
+        Scenario(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final int threads = Integer.getInteger("loadtest.threads", 16);
+    private final Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+    private final Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT20S"));
+    private final int objects = Integer.getInteger("loadtest.objects", 200);
+    private final int objectSize = Integer.getInteger("loadtest.object-size", 65536);
+    private final double failureRate = Double.parseDouble(System.getProperty("loadtest.failure-rate", "0"));
+
+    @AfterEach
+    void resetStub() {
+        if (s3Stub != null) {
+            s3Stub.reset();
+        }
+    }
+
+    @Test
+    public void controllerUnderLoad() throws Exception {
+        assumeTrue(s3Stub != null, "The load test needs the in-process S3 stub (not -Ds3.test.backend=minio)");
+
+        byte[] content = new byte[objectSize];
+        new Random(42).nextBytes(content);
+        for (int i = 0; i < objects; i++) {
+            s3Stub.putObject(BUCKET, FOLDER + "file-" + i + ".bin", content, "application/octet-stream");
+        }
+        s3Stub.setLatency(Duration.ofMillis(Long.getLong("loadtest.latency-ms", 5)),
+                Duration.ofMillis(Long.getLong("loadtest.jitter-ms", 5)));
+        s3Stub.setFailureRate(failureRate);
+
+        run(warmup, content); // let connection pools, JIT and caches settle; results are discarded
+        long started = System.nanoTime();
+        List<Map<Scenario, Recorder>> results = run(duration, content);
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        Map<Scenario, Recorder> merged = new EnumMap<>(Scenario.class);
+        for (Map<Scenario, Recorder> workerResult : results) {
+            workerResult.forEach((scenario, recorder) ->
+                    merged.computeIfAbsent(scenario, s -> new Recorder()).addAll(recorder));
+        }
+        Recorder total = new Recorder();
+        merged.values().forEach(total::addAll);
+
+        System.out.println(report(merged, total, elapsedSeconds));
+
+        assertTrue(total.count() > 0, "No requests completed");
+        if (failureRate == 0) {
+            assertEquals(0, total.errors, "Requests failed without injected faults");
+        }
+    }
+
+    private List<Map<Scenario, Recorder>> run(Duration runFor, byte[] content) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long deadline = System.nanoTime() + runFor.toNanos();
+            List<Future<Map<Scenario, Recorder>>> futures = new ArrayList<>();
+            for (int worker = 0; worker < threads; worker++) {
+                int workerId = worker;
+                futures.add(executor.submit(() -> work(workerId, deadline, content)));
+            }
+            List<Map<Scenario, Recorder>> results = new ArrayList<>();
+            for (Future<Map<Scenario, Recorder>> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<Scenario, Recorder> work(int workerId, long deadline, byte[] content) {
+        Map<Scenario, Recorder> recorders = new EnumMap<>(Scenario.class);
+        Random random = new Random(workerId);
+        int uploads = 0;
+        while (System.nanoTime() < deadline) {
+            Scenario scenario = pick(random);
+            String key = FOLDER + "file-" + random.nextInt(objects) + ".bin";
+            HttpRequest request = switch (scenario) {
+                case RESOURCE -> get("/resource?id=" + encode(key));
+                case LIST -> get("/list/folder?folderId=" + encode(FOLDER));
+                case STREAM_LIST -> get("/list/folder/stream?folderId=" + encode(FOLDER) + "&pageSize=" + objects);
+                case DOWNLOAD -> get("/download?id=" + encode(key));
+                case UPLOAD -> upload("upload-" + workerId + "-" + (uploads++ % 10) + ".bin", content);
+            };
+
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                ok = response.statusCode() < 400;
+            } catch (Exception e) {
+                ok = false;
+            }
+            recorders.computeIfAbsent(scenario, s -> new Recorder()).record(System.nanoTime() - start, ok);
+        }
+        return recorders;
+    }
+
+    private Scenario pick(Random random) {
+        int roll = random.nextInt(Arrays.stream(Scenario.values()).mapToInt(s -> s.weight).sum());
+        for (Scenario scenario : Scenario.values()) {
+            roll -= scenario.weight;
+            if (roll < 0) {
+                return scenario;
+            }
+        }
+        return Scenario.RESOURCE;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/s3/files" + path))
+                .header("Authorization", AUTHORIZATION)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest upload(String name, byte[] content) {
+        String boundary = "load-test-boundary";
+        ByteArrayOutputStream body = new ByteArrayOutputStream(content.length + 512);
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"key\"\r\n\r\n"
+                + FOLDER + "uploads/" + name + "\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + name + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/s3/files/upload"))
+                .header("Authorization", AUTHORIZATION)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private String report(Map<Scenario, Recorder> results, Recorder total, double elapsedSeconds) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%nS3FileController load test: %d threads, %.1f s, stub latency %s ms + %s ms jitter, failure rate %s%n",
+                threads, elapsedSeconds, System.getProperty("loadtest.latency-ms", "5"),
+                System.getProperty("loadtest.jitter-ms", "5"), failureRate));
+        report.append(String.format("%-12s %9s %7s %10s %9s %9s %9s %9s%n",
+                "scenario", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        results.forEach((scenario, recorder) -> report.append(recorder.line(scenario.name(), elapsedSeconds)));
+        report.append(total.line("TOTAL", elapsedSeconds));
+        report.append(String.format("Stub requests: %s; injected failures: %d%n",
+                Arrays.stream(S3StubServer.Operation.values())
+                        .filter(op -> s3Stub.getRequestCount(op) > 0)
+                        .map(op -> op + "=" + s3Stub.getRequestCount(op))
+                        .toList(),
+                s3Stub.getInjectedFailures()));
+        return report.toString();
+    }
+
+    /**
+     * Collects request latencies of one worker (or merged results); not thread-safe.
+     */
+    private static class Recorder {
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+
+        void record(long nanos, boolean ok) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        void addAll(Recorder other) {
+            for (int i = 0; i < other.size; i++) {
+                record(other.latencies[i], true);
+            }
+            errors += other.errors;
+        }
+
+        int count() {
+            return size;
+        }
+
+        String line(String name, double elapsedSeconds) {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return String.format("%-12s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    name, size, errors, size / elapsedSeconds,
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 100));
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.bds.awss3interface.integration;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.bds.awss3interface.model.Resource;
+import com.bds.awss3interface.service.s3.S3StorageService;
+import com.bds.awss3interface.service.spool.DownloadSpool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Integration tests for S3StorageService downloads against the real backend, with spool reuse enabled.
+ */
+public class S3StorageServiceIntegrationTest extends BaseIntegrationTest {
+
+    private static final String BUCKET = "qteam-solutions";
+
+    @Autowired
+    private AmazonS3 amazonS3;
+
+    @TempDir
+    Path spoolDirectory;
+
+    private DownloadSpool downloadSpool;
+    private S3StorageService storageService;
+
+    @BeforeEach
+    void createService() {
+        downloadSpool = new DownloadSpool(spoolDirectory, 1 << 20, true, Duration.ofMinutes(1),
+                Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofMinutes(1));
+        storageService = new S3StorageService(amazonS3, BUCKET, downloadSpool, null);
+    }
+
+    @AfterEach
+    void shutdownSpool() {
+        downloadSpool.shutdown();
+    }
+
+    /**
+     * Verifies that an object replaced between its metadata lookup and the download is not spooled under
+     * the old ETag: the download returns the current version, and later requests carrying the old ETag
+     * still never get outdated bytes.
+     */
+    @Test
+    public void objectReplacedBeforeDownloadIsNotCachedUnderOldEtag() throws Exception {
+        String key = "replaced/object.txt";
+        amazonS3.putObject(BUCKET, key, "version 1");
+        Resource before = storageService.getResource(key);
+
+        amazonS3.putObject(BUCKET, key, "version 2");
+        File replaced = storageService.getAsFile(before);
+        assertEquals("version 2", Files.readString(replaced.toPath()));
+        storageService.releaseFile(replaced);
+
+        // The copy was filed under the new ETag, so a request that sees the new version reuses it
+        Resource current = storageService.getResource(key);
+        File reused = storageService.getAsFile(current);
+        assertEquals(replaced, reused);
+        storageService.releaseFile(reused);
+
+        amazonS3.putObject(BUCKET, key, "version 3");
+        File latest = storageService.getAsFile(before);
+        assertEquals("version 3", Files.readString(latest.toPath()));
+        storageService.releaseFile(latest);
+    }
+}
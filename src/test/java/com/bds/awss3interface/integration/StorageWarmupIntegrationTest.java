@@ -0,0 +1,88 @@
+package com.bds.awss3interface.integration;
+
+import com.bds.awss3interface.service.resilience.CircuitBreaker;
+import com.bds.awss3interface.service.resilience.ResilientStorageService;
+import com.bds.awss3interface.service.routing.StorageBackends;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItems;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the startup warm-up.
+ * The objects are seeded into the stub before the context (and with it the warm-up) starts, so this
+ * class only runs against the in-process stub.
+ */
+@SpringBootTest(properties = {
+        "s3.warmup.prefixes=warm/,missing/",
+        "s3.warmup.keys=warm/hot.txt,missing.txt"
+})
+@AutoConfigureMockMvc
+@DisabledIfSystemProperty(named = "s3.test.backend", matches = "(?i)minio")
+public class StorageWarmupIntegrationTest extends BaseIntegrationTest {
+
+    static {
+        byte[] content = "Warm content".getBytes(StandardCharsets.UTF_8);
+        s3Stub.putObject("qteam-solutions", "warm/hot.txt", content, "text/plain");
+        s3Stub.putObject("qteam-solutions", "warm/listed.txt", content, "text/plain");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StorageBackends storageBackends;
+
+    /**
+     * Verifies that the configured prefix and key were cached during startup, so they are answered
+     * while the backend's circuit is open even though no request touched them before. Startup itself
+     * got here despite the failing warm-up steps for "missing/" and "missing.txt".
+     */
+    @Test
+    @WithMockUser(username = "user")
+    public void warmedUpListingAndMetadataAreServedWhileCircuitIsOpen() throws Exception {
+        CircuitBreaker circuitBreaker = ((ResilientStorageService) storageBackends.getDefaultBackend()
+                .getStorageService()).getCircuitBreaker();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(), "Failed warm-up steps must not open the circuit");
+        for (int i = 0; i < 2; i++) { // s3.resilience.failure-threshold in the test profile
+            circuitBreaker.recordFailure();
+        }
+        assertTrue(circuitBreaker.isOpen());
+
+        try {
+            mockMvc.perform(get("/api/s3/files/list/folder").param("folderId", "warm/"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Warning", containsString("110")))
+                    .andExpect(jsonPath("$.resources[*].id", hasItems("warm/hot.txt", "warm/listed.txt")));
+            mockMvc.perform(get("/api/s3/files/resource").param("id", "warm/hot.txt"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().exists("Age"))
+                    .andExpect(jsonPath("$.size").value(12));
+            mockMvc.perform(get("/api/s3/files/resource").param("id", "warm/listed.txt"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().exists("Age"));
+
+            // Nothing was cached for keys the warm-up did not cover
+            mockMvc.perform(get("/api/s3/files/resource").param("id", "cold.txt"))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (circuitBreaker.isOpen() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+}
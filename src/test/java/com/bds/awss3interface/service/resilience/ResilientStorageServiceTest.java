@@ -0,0 +1,178 @@
+package com.bds.awss3interface.service.resilience;
+
+import com.bds.awss3interface.common.StorageService;
+import com.bds.awss3interface.exception.StorageUnavailableException;
+import com.bds.awss3interface.model.ListResult;
+import com.bds.awss3interface.model.Resource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ResilientStorageServiceTest {
+
+    private static final Resource FOLDER = Resource.builder().id("docs/").name("docs").type(1).build();
+    private static final Resource FILE = Resource.builder().id("docs/a.txt").name("a.txt").type(0).size(3).build();
+
+    private final StorageService delegate = mock(StorageService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void openCircuitStaysOpen() {
+        // The probe always fails, so once opened the circuit stays open for the whole test
+        circuitBreaker = new CircuitBreaker("test", 1, Duration.ofHours(1), () -> {
+            throw new IllegalStateException("still down");
+        });
+    }
+
+    @AfterEach
+    void shutdown() {
+        circuitBreaker.shutdown();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void staleListingDoesNotRefreshMetadataOfItsEntries() throws Exception {
+        ResilientStorageService service = service(Duration.ofMillis(600));
+        when(delegate.listFolder(FOLDER, null)).thenReturn(listing(FILE));
+        service.listFolder(FOLDER, null);
+
+        Thread.sleep(300);
+        circuitBreaker.recordFailure();
+        assertTrue(circuitBreaker.isOpen());
+        MockHttpServletRequest request = bindRequest();
+        assertEquals(List.of(FILE), service.listFolder(FOLDER, null).getResources());
+        assertNotNull(request.getAttribute(StaleResponses.AGE_ATTRIBUTE), "The listing should be flagged as stale");
+
+        // Both the listing and the metadata it cached are now past max-stale; a stale listing must not have renewed them
+        Thread.sleep(400);
+        assertThrows(StorageUnavailableException.class, () -> service.getResource(FILE.getId()));
+        assertThrows(StorageUnavailableException.class, () -> service.listFolder(FOLDER, null));
+        verify(delegate, times(1)).listFolder(FOLDER, null);
+        verify(delegate, never()).getResource(FILE.getId());
+    }
+
+    @Test
+    public void freshListingCachesMetadataOfItsEntries() {
+        ResilientStorageService service = service(Duration.ofHours(1));
+        when(delegate.listFolder(FOLDER, null)).thenReturn(listing(FILE));
+        service.listFolder(FOLDER, null);
+
+        circuitBreaker.recordFailure();
+        assertEquals(FILE, service.getResource(FILE.getId()));
+        verify(delegate, never()).getResource(FILE.getId());
+    }
+
+    @Test
+    public void staleListingIsServedWhileRefreshIsInProgress() throws Exception {
+        ResilientStorageService service = service(Duration.ofHours(1));
+        Resource updated = Resource.builder().id("docs/b.txt").name("b.txt").type(0).size(5).build();
+        CountDownLatch refreshing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.listFolder(FOLDER, null))
+                .thenReturn(listing(FILE))
+                .thenAnswer(invocation -> {
+                    refreshing.countDown();
+                    release.await();
+                    return listing(updated);
+                });
+        service.listFolder(FOLDER, null);
+
+        CompletableFuture<ListResult<Resource>> refresh = CompletableFuture.supplyAsync(() -> service.listFolder(FOLDER, null));
+        assertTrue(refreshing.await(10, TimeUnit.SECONDS));
+
+        // A concurrent request does not pile onto the backend while the refresh is running
+        MockHttpServletRequest request = bindRequest();
+        assertEquals(List.of(FILE), service.listFolder(FOLDER, null).getResources());
+        assertNotNull(request.getAttribute(StaleResponses.AGE_ATTRIBUTE));
+        verify(delegate, times(2)).listFolder(FOLDER, null);
+
+        release.countDown();
+        assertEquals(List.of(updated), refresh.get(10, TimeUnit.SECONDS).getResources());
+        RequestContextHolder.resetRequestAttributes();
+        assertEquals(List.of(updated), service.listFolder(FOLDER, null).getResources());
+        assertEquals(1, meterRegistry.get("s3.stale.served").counter().count());
+    }
+
+    @Test
+    public void staleMetadataIsServedWhileRefreshIsInProgress() throws Exception {
+        ResilientStorageService service = service(Duration.ofHours(1));
+        CountDownLatch refreshing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getResource(FILE.getId()))
+                .thenReturn(FILE)
+                .thenAnswer(invocation -> {
+                    refreshing.countDown();
+                    release.await();
+                    return FILE;
+                });
+        service.getResource(FILE.getId());
+
+        CompletableFuture<Resource> refresh = CompletableFuture.supplyAsync(() -> service.getResource(FILE.getId()));
+        assertTrue(refreshing.await(10, TimeUnit.SECONDS));
+        assertEquals(FILE, service.getResource(FILE.getId()));
+        verify(delegate, times(2)).getResource(FILE.getId());
+
+        release.countDown();
+        assertEquals(FILE, refresh.get(10, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("s3.stale.served").counter().count());
+    }
+
+    @Test
+    public void downloadUsesFreshMetadataWhileStaleMetadataIsServed() throws Exception {
+        ResilientStorageService service = service(Duration.ofHours(1));
+        Resource before = Resource.builder().id("docs/a.txt").name("a.txt").type(0).size(3).etag("\"v1\"").build();
+        Resource after = Resource.builder().id("docs/a.txt").name("a.txt").type(0).size(7).etag("\"v2\"").build();
+        CountDownLatch refreshing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getResource(FILE.getId()))
+                .thenReturn(before)
+                .thenAnswer(invocation -> {
+                    refreshing.countDown();
+                    release.await();
+                    return after;
+                })
+                .thenReturn(after);
+        service.getResource(FILE.getId());
+
+        CompletableFuture<Resource> refresh = CompletableFuture.supplyAsync(() -> service.getResource(FILE.getId()));
+        assertTrue(refreshing.await(10, TimeUnit.SECONDS));
+        Resource stale = service.getResource(FILE.getId());
+        assertEquals(before, stale);
+
+        // Browsing got the stale metadata, but the transfer is sized and validated by the current version
+        service.getAsFile(stale);
+        verify(delegate).getAsFile(after);
+        verify(delegate, never()).getAsFile(before);
+
+        release.countDown();
+        refresh.get(10, TimeUnit.SECONDS);
+    }
+
+    private ResilientStorageService service(Duration maxStale) {
+        return new ResilientStorageService(delegate, circuitBreaker, "test", 100, maxStale, meterRegistry);
+    }
+
+    private static ListResult<Resource> listing(Resource... resources) {
+        return ListResult.<Resource>builder().resources(List.of(resources)).build();
+    }
+
+    private static MockHttpServletRequest bindRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        return request;
+    }
+}
@@ -0,0 +1,78 @@
+package com.bds.awss3interface.service.spool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DownloadSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    private DownloadSpool spool;
+
+    @AfterEach
+    void shutdown() {
+        if (spool != null) {
+            spool.shutdown();
+        }
+    }
+
+    @Test
+    public void copyIsReusedOnlyWhileTheObjectIsUnchanged() throws Exception {
+        spool = new DownloadSpool(directory, 1 << 20, true, Duration.ofMinutes(1),
+                Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofMinutes(1));
+        AtomicInteger downloads = new AtomicInteger();
+
+        File first = spool.acquire("bucket/a.txt", "\"v1\"", "a.txt", 2, writing("v1", downloads));
+        spool.release(first);
+        File reused = spool.acquire("bucket/a.txt", "\"v1\"", "a.txt", 2, writing("v1", downloads));
+        spool.release(reused);
+        assertEquals(first, reused);
+        assertEquals(1, downloads.get());
+
+        File changed = spool.acquire("bucket/a.txt", "\"v2\"", "a.txt", 2, writing("v2", downloads));
+        assertEquals(2, downloads.get(), "A new version of the object must be downloaded again");
+        assertEquals("v2", Files.readString(changed.toPath()));
+        assertFalse(first.exists(), "The outdated copy should be deleted");
+        spool.release(changed);
+        assertEquals(2, spool.getReservedBytes());
+    }
+
+    @Test
+    public void copyWithoutVersionIsNeverReused() {
+        spool = new DownloadSpool(directory, 1 << 20, true, Duration.ofMinutes(1),
+                Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofMinutes(1));
+        AtomicInteger downloads = new AtomicInteger();
+
+        File first = spool.acquire("bucket/a.txt", null, "a.txt", 2, writing("v1", downloads));
+        spool.release(first);
+        assertFalse(first.exists());
+        File second = spool.acquire("bucket/a.txt", null, "a.txt", 2, writing("v1", downloads));
+        spool.release(second);
+
+        assertEquals(2, downloads.get());
+        assertEquals(0, spool.getReservedBytes());
+    }
+
+    private static DownloadSpool.Downloader writing(String content, AtomicInteger downloads) {
+        return target -> {
+            downloads.incrementAndGet();
+            try {
+                Files.writeString(target.toPath(), content);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+}
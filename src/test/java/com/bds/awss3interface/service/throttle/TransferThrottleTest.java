@@ -0,0 +1,135 @@
+package com.bds.awss3interface.service.throttle;
+
+import com.bds.awss3interface.config.TransferProperties;
+import com.bds.awss3interface.exception.StorageBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransferThrottleTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void transferPastPerUserLimitIsRefusedAfterAcquireTimeout() {
+        TransferProperties properties = properties(Duration.ofMillis(300));
+        properties.getRoles().put("USER", limit(1, 0));
+        TransferThrottle throttle = new TransferThrottle(properties, meterRegistry);
+        Authentication alice = user("alice", "ROLE_USER");
+
+        TransferPermit first = throttle.acquire(alice, TransferDirection.DOWNLOAD);
+        long start = System.nanoTime();
+        assertThrows(StorageBusyException.class, () -> throttle.acquire(alice, TransferDirection.DOWNLOAD));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(300)) >= 0,
+                "The second transfer should wait for the acquire timeout before being refused");
+        assertEquals(1, meterRegistry.get("s3.transfer.rejected").tag("role", "USER").counter().count());
+
+        // Another user is not affected, and the slot is reusable once the first transfer ends
+        throttle.acquire(user("bob", "ROLE_USER"), TransferDirection.DOWNLOAD).close();
+        first.close();
+        throttle.acquire(alice, TransferDirection.DOWNLOAD).close();
+    }
+
+    @Test
+    public void transferPastGlobalLimitIsRefused() {
+        TransferProperties properties = properties(Duration.ofMillis(100));
+        properties.setGlobalMaxConcurrent(1);
+        TransferThrottle throttle = new TransferThrottle(properties, meterRegistry);
+
+        try (TransferPermit ignored = throttle.acquire(user("alice"), TransferDirection.UPLOAD)) {
+            assertThrows(StorageBusyException.class, () -> throttle.acquire(user("bob"), TransferDirection.UPLOAD));
+        }
+        throttle.acquire(user("bob"), TransferDirection.UPLOAD).close();
+    }
+
+    @Test
+    public void principalWithSeveralRolesGetsMostPermissiveLimit() {
+        TransferProperties properties = properties(Duration.ofMillis(100));
+        properties.getRoles().put("USER", limit(1, 1024));
+        properties.getRoles().put("ADMIN", limit(3, 0));
+        properties.getRoles().put("AUDITOR", limit(3, 2048));
+        TransferThrottle throttle = new TransferThrottle(properties, meterRegistry);
+        Authentication carol = user("carol", "ROLE_USER", "ROLE_AUDITOR", "ROLE_ADMIN");
+
+        List<TransferPermit> permits = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            permits.add(throttle.acquire(carol, TransferDirection.DOWNLOAD));
+        }
+        assertEquals(3, meterRegistry.get("s3.transfer.active").tag("role", "ADMIN").gauge().value(),
+                "Equal concurrency should be decided by the higher (unlimited) rate");
+        assertThrows(StorageBusyException.class, () -> throttle.acquire(carol, TransferDirection.DOWNLOAD));
+        permits.forEach(TransferPermit::close);
+        assertEquals(0, meterRegistry.get("s3.transfer.active").tag("role", "ADMIN").gauge().value());
+    }
+
+    @Test
+    public void throttledStreamIsHeldToConfiguredRate() throws Exception {
+        long bytesPerSecond = 256 * 1024;
+        TransferProperties properties = properties(Duration.ofSeconds(1));
+        properties.setDefaults(limit(1, bytesPerSecond));
+        TransferThrottle throttle = new TransferThrottle(properties, meterRegistry);
+
+        byte[] content = new byte[(int) (3 * bytesPerSecond)];
+        long start;
+        try (TransferPermit permit = throttle.acquire(user("dave"), TransferDirection.DOWNLOAD);
+             InputStream in = permit.throttle(new ByteArrayInputStream(content))) {
+            start = System.nanoTime();
+            assertEquals(content.length, in.readAllBytes().length);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // The bucket starts full with one second's worth, so the remaining two seconds' worth is paced
+        assertTrue(seconds >= 1.9, "Read " + content.length + " bytes in " + seconds + " s, faster than the limit");
+        assertTrue(seconds < 4, "Read " + content.length + " bytes in " + seconds + " s, far slower than the limit");
+        assertEquals(content.length, meterRegistry.get("s3.transfer.bytes").tag("direction", "download").counter().count());
+    }
+
+    @Test
+    public void tokenBucketSplitsRateBetweenConcurrentConsumers() throws Exception {
+        TokenBucket bucket = new TokenBucket(100_000);
+        bucket.consume(100_000); // drain the initial burst
+
+        long start = System.nanoTime();
+        Thread other = new Thread(() -> {
+            try {
+                bucket.consume(50_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        other.start();
+        bucket.consume(50_000);
+        other.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertTrue(seconds >= 0.95, "100 kB at 100 kB/s took only " + seconds + " s");
+        assertTrue(seconds < 2, "100 kB at 100 kB/s took " + seconds + " s");
+    }
+
+    private static TransferProperties properties(Duration acquireTimeout) {
+        TransferProperties properties = new TransferProperties();
+        properties.setAcquireTimeout(acquireTimeout);
+        return properties;
+    }
+
+    private static TransferProperties.Limit limit(int maxConcurrent, long bytesPerSecond) {
+        TransferProperties.Limit limit = new TransferProperties.Limit();
+        limit.setMaxConcurrent(maxConcurrent);
+        limit.setBytesPerSecond(bytesPerSecond);
+        return limit;
+    }
+
+    private static Authentication user(String name, String... authorities) {
+        return new UsernamePasswordAuthenticationToken(name, null, AuthorityUtils.createAuthorityList(authorities));
+    }
+}
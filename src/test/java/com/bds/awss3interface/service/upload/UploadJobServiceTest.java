@@ -0,0 +1,116 @@
+package com.bds.awss3interface.service.upload;
+
+import com.bds.awss3interface.common.StorageService;
+import com.bds.awss3interface.exception.StorageUnavailableException;
+import com.bds.awss3interface.model.UploadJob;
+import com.bds.awss3interface.model.UploadJobStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class UploadJobServiceTest {
+
+    @TempDir
+    Path spoolDirectory;
+
+    @Test
+    public void leftoverSpoolFilesAreDeletedAtStartup() throws Exception {
+        Path leftover = Files.writeString(spoolDirectory.resolve("crashed-job.part"), "partial");
+        Path unrelated = Files.writeString(spoolDirectory.resolve("notes.txt"), "keep me");
+
+        UploadJobService service = new UploadJobService(spoolDirectory, 1, 1, 1, Duration.ZERO, Duration.ZERO, Duration.ofHours(1));
+        try {
+            assertFalse(Files.exists(leftover), "Spool files of a previous run should be removed");
+            assertTrue(Files.exists(unrelated), "Only spool files should be removed");
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void queuedJobsAreCancelledAndCleanedUpOnShutdown() throws Exception {
+        CountDownLatch uploading = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        StorageService storage = mock(StorageService.class);
+        doAnswer(invocation -> {
+            uploading.countDown();
+            blocked.await(); // released by the interrupt from shutdownNow()
+            return null;
+        }).when(storage).uploadFile(anyString(), any(File.class), any(), any(LongConsumer.class));
+
+        UploadJobService service = new UploadJobService(spoolDirectory, 1, 1, 1, Duration.ZERO, Duration.ZERO, Duration.ofHours(1));
+        UploadJob running = service.submit(storage, "a.txt", file("a.txt"));
+        assertTrue(uploading.await(10, TimeUnit.SECONDS));
+        UploadJob queued = service.submit(storage, "b.txt", file("b.txt"));
+        assertTrue(Files.exists(spoolDirectory.resolve(queued.getJobId() + ".part")));
+
+        // An interrupted shutdown gives up waiting for the running upload and drops the queue
+        Thread stopper = new Thread(service::shutdown);
+        stopper.start();
+        stopper.interrupt();
+        stopper.join(10_000);
+
+        assertEquals(UploadJobStatus.FAILED, service.getJob(queued.getJobId()).getStatus());
+        assertEquals("Upload cancelled by shutdown", service.getJob(queued.getJobId()).getError());
+        awaitFinished(service, running.getJobId());
+        try (var files = Files.list(spoolDirectory)) {
+            assertEquals(0, files.count(), "No spool files should be left after shutdown");
+        }
+    }
+
+    @Test
+    public void uploadIsRetriedWhileBackendIsUnavailable() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        StorageService storage = mock(StorageService.class);
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new StorageUnavailableException("Storage backend 'default' is unavailable, try again later");
+            }
+            return null;
+        }).when(storage).uploadFile(anyString(), any(File.class), any(), any(LongConsumer.class));
+
+        // The regular backoff is tiny; the circuit's open duration must still be waited out
+        UploadJobService service = new UploadJobService(spoolDirectory, 1, 1, 3, Duration.ofMillis(1),
+                Duration.ofMillis(500), Duration.ofHours(1));
+        try {
+            long start = System.currentTimeMillis();
+            UploadJob job = service.submit(storage, "a.txt", file("a.txt"));
+            UploadJob finished = awaitFinished(service, job.getJobId());
+
+            assertEquals(UploadJobStatus.COMPLETED, finished.getStatus());
+            assertEquals(2, finished.getAttempts());
+            assertTrue(System.currentTimeMillis() - start >= 500, "Retry should wait for the circuit's open duration");
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private static UploadJob awaitFinished(UploadJobService service, String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        UploadJob job = service.getJob(jobId);
+        while (job.getFinishedAt() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            job = service.getJob(jobId);
+        }
+        return job;
+    }
+
+    private static MockMultipartFile file(String name) {
+        return new MockMultipartFile("file", name, "text/plain", ("content of " + name).getBytes());
+    }
+}
@@ -0,0 +1,929 @@
+package com.bds.awss3interface.stub;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * An in-process, S3-compatible HTTP server for offline integration and load tests.
+ * <p>
+ * It speaks just enough of the S3 REST API (path-style addressing) for the AWS SDK calls this service makes:
+ * bucket create/HEAD/ACL, ListObjectsV2 with prefix, delimiter and continuation tokens, object
+ * HEAD/GET (with {@code Range} and {@code If-Match})/PUT/DELETE, server-side copy, multipart upload and
+ * part copy, and DeleteObjects.
+ * Objects keep their user metadata and standard headers (Cache-Control, Content-Disposition and the
+ * like). Requests are not authenticated, so presigned URLs work as-is. Objects live in memory.
+ * <p>
+ * Latency and failures can be injected per {@link Operation}, to exercise retries, the circuit breaker
+ * and behaviour under a slow backend. Injected failures answer with 503 {@code SlowDown}, which the SDK retries.
+ */
+public class S3StubServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3StubServer.class);
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+    private static final String S3_NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+    private static final DateTimeFormatter ISO_8601 =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter RFC_822 =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    /**
+     * Groups of requests that latency and faults can be targeted at.
+     */
+    public enum Operation {
+        BUCKET,
+        LIST,
+        HEAD,
+        GET,
+        PUT,
+        COPY,
+        MULTIPART,
+        DELETE
+    }
+
+    /**
+     * Answered with 404 NoSuchBucket, like any request against a bucket that does not exist.
+     */
+    private static class NoSuchBucketException extends IllegalArgumentException {
+        NoSuchBucketException(String bucket) {
+            super("No such bucket: " + bucket);
+        }
+    }
+
+    /**
+     * Request headers, besides Content-Type and {@code x-amz-meta-*}, that S3 keeps with an object and
+     * returns on HEAD and GET.
+     */
+    private static final Set<String> STORED_HEADERS = Set.of("cache-control", "content-disposition",
+            "content-encoding", "content-language", "expires", "x-amz-server-side-encryption",
+            "x-amz-server-side-encryption-aws-kms-key-id", "x-amz-storage-class", "x-amz-website-redirect-location");
+
+    private record StoredObject(byte[] data, String etag, String contentType, Instant lastModified,
+                                Map<String, String> headers) {
+    }
+
+    private record MultipartUpload(String bucket, String key, String contentType, Map<String, String> headers,
+                                   Map<Integer, StoredObject> parts) {
+    }
+
+    private record Behaviour(Duration latency, Duration jitter, double failureRate) {
+    }
+
+    private static final Behaviour NORMAL = new Behaviour(Duration.ZERO, Duration.ZERO, 0);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, ConcurrentSkipListMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+    private final Map<String, MultipartUpload> uploads = new ConcurrentHashMap<>();
+    private final Map<Operation, Behaviour> behaviours = new ConcurrentHashMap<>();
+    private final Map<Operation, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicLong injectedFailures = new AtomicLong();
+
+    /**
+     * Starts a stub on a free local port with a 64-thread request pool.
+     */
+    public static S3StubServer start() {
+        return start(0, 64);
+    }
+
+    /**
+     * @param port    the port to listen on, 0 for any free port
+     * @param threads request handler threads; bounds how many requests are served at once
+     */
+    public static S3StubServer start(int port, int threads) {
+        try {
+            return new S3StubServer(port, threads);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to start S3 stub server", e);
+        }
+    }
+
+    private S3StubServer(int port, int threads) throws IOException {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "s3-stub-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        for (Operation operation : Operation.values()) {
+            requestCounts.put(operation, new AtomicLong());
+        }
+        this.server.start();
+        logger.info("S3 stub server listening on {}", getEndpoint());
+    }
+
+    public String getEndpoint() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Test controls
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * Delays every request by {@code latency} plus a uniformly random share of {@code jitter}.
+     */
+    public void setLatency(Duration latency, Duration jitter) {
+        for (Operation operation : Operation.values()) {
+            setLatency(operation, latency, jitter);
+        }
+    }
+
+    public void setLatency(Operation operation, Duration latency, Duration jitter) {
+        behaviours.compute(operation, (op, current) -> new Behaviour(latency, jitter,
+                current != null ? current.failureRate() : 0));
+    }
+
+    /**
+     * Fails the given share (0..1) of all requests with 503 SlowDown.
+     */
+    public void setFailureRate(double failureRate) {
+        for (Operation operation : Operation.values()) {
+            setFailureRate(operation, failureRate);
+        }
+    }
+
+    public void setFailureRate(Operation operation, double failureRate) {
+        behaviours.compute(operation, (op, current) -> current != null
+                ? new Behaviour(current.latency(), current.jitter(), failureRate)
+                : new Behaviour(Duration.ZERO, Duration.ZERO, failureRate));
+    }
+
+    /**
+     * Removes all injected latency and failures and resets the counters; stored data is kept.
+     */
+    public void reset() {
+        behaviours.clear();
+        requestCounts.values().forEach(count -> count.set(0));
+        injectedFailures.set(0);
+    }
+
+    public long getRequestCount(Operation operation) {
+        return requestCounts.get(operation).get();
+    }
+
+    public long getInjectedFailures() {
+        return injectedFailures.get();
+    }
+
+    public void createBucket(String bucket) {
+        buckets.computeIfAbsent(bucket, name -> new ConcurrentSkipListMap<>());
+    }
+
+    /**
+     * Stores an object directly, bypassing HTTP; handy for seeding load tests.
+     */
+    public void putObject(String bucket, String key, byte[] data, String contentType) {
+        bucket(bucket).put(key, store(data, contentType, Map.of()));
+    }
+
+    public byte[] getObject(String bucket, String key) {
+        StoredObject object = bucket(bucket).get(key);
+        return object != null ? object.data() : null;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Request dispatch
+    // ---------------------------------------------------------------------------------------------
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            String trimmed = path.startsWith("/") ? path.substring(1) : path;
+            int slash = trimmed.indexOf('/');
+            String bucket = slash >= 0 ? trimmed.substring(0, slash) : trimmed;
+            String key = slash >= 0 ? trimmed.substring(slash + 1) : "";
+
+            Operation operation = classify(method, key, query, exchange.getRequestHeaders());
+            requestCounts.get(operation).incrementAndGet();
+            if (injectBehaviour(operation)) {
+                drain(exchange);
+                sendError(exchange, 503, "SlowDown", "Injected failure", path);
+                return;
+            }
+
+            if (bucket.isEmpty()) {
+                sendError(exchange, 400, "InvalidRequest", "Only path-style bucket requests are supported", path);
+            } else if (key.isEmpty()) {
+                handleBucket(exchange, method, bucket, query, path);
+            } else {
+                handleObject(exchange, method, bucket, key, query, path);
+            }
+        } catch (NoSuchBucketException e) {
+            drain(exchange);
+            sendError(exchange, 404, "NoSuchBucket", "The specified bucket does not exist", exchange.getRequestURI().getPath());
+        } catch (RuntimeException e) {
+            logger.error("S3 stub failed to handle {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            sendError(exchange, 500, "InternalError", String.valueOf(e.getMessage()), exchange.getRequestURI().getPath());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Operation classify(String method, String key, Map<String, String> query, Headers headers) {
+        if (key.isEmpty()) {
+            if (query.containsKey("list-type") || (method.equals("GET") && query.isEmpty())) {
+                return Operation.LIST;
+            }
+            return query.containsKey("delete") ? Operation.DELETE : Operation.BUCKET;
+        }
+        if (query.containsKey("uploads") || query.containsKey("uploadId")) {
+            return headers.containsKey("x-amz-copy-source") ? Operation.COPY : Operation.MULTIPART;
+        }
+        return switch (method) {
+            case "HEAD" -> Operation.HEAD;
+            case "GET" -> Operation.GET;
+            case "PUT" -> headers.containsKey("x-amz-copy-source") ? Operation.COPY : Operation.PUT;
+            default -> Operation.DELETE;
+        };
+    }
+
+    /**
+     * Applies the configured latency; returns true if this request should fail.
+     */
+    private boolean injectBehaviour(Operation operation) {
+        Behaviour behaviour = behaviours.getOrDefault(operation, NORMAL);
+        long delayMillis = behaviour.latency().toMillis();
+        if (!behaviour.jitter().isZero()) {
+            delayMillis += ThreadLocalRandom.current().nextLong(behaviour.jitter().toMillis() + 1);
+        }
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (behaviour.failureRate() > 0 && ThreadLocalRandom.current().nextDouble() < behaviour.failureRate()) {
+            injectedFailures.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Bucket operations
+    // ---------------------------------------------------------------------------------------------
+
+    private void handleBucket(HttpExchange exchange, String method, String bucket, Map<String, String> query,
+                              String path) throws IOException {
+        switch (method) {
+            case "PUT" -> {
+                drain(exchange);
+                createBucket(bucket);
+                send(exchange, 200, null, null);
+            }
+            case "HEAD" -> send(exchange, buckets.containsKey(bucket) ? 200 : 404, null, null);
+            case "GET" -> {
+                if (!buckets.containsKey(bucket)) {
+                    sendError(exchange, 404, "NoSuchBucket", "The specified bucket does not exist", path);
+                } else if (query.containsKey("acl")) {
+                    sendXml(exchange, 200, "<AccessControlPolicy xmlns=\"" + S3_NAMESPACE + "\">"
+                            + "<Owner><ID>stub</ID><DisplayName>stub</DisplayName></Owner>"
+                            + "<AccessControlList><Grant>"
+                            + "<Grantee xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:type=\"CanonicalUser\">"
+                            + "<ID>stub</ID><DisplayName>stub</DisplayName></Grantee>"
+                            + "<Permission>FULL_CONTROL</Permission></Grant></AccessControlList>"
+                            + "</AccessControlPolicy>");
+                } else if (query.containsKey("location")) {
+                    sendXml(exchange, 200, "<LocationConstraint xmlns=\"" + S3_NAMESPACE + "\"/>");
+                } else {
+                    listObjectsV2(exchange, bucket, query);
+                }
+            }
+            case "POST" -> {
+                if (query.containsKey("delete")) {
+                    deleteObjects(exchange, bucket, path);
+                } else {
+                    sendError(exchange, 501, "NotImplemented", "Unsupported bucket operation", path);
+                }
+            }
+            case "DELETE" -> {
+                buckets.remove(bucket);
+                send(exchange, 204, null, null);
+            }
+            default -> sendError(exchange, 405, "MethodNotAllowed", "Unsupported method " + method, path);
+        }
+    }
+
+    private void listObjectsV2(HttpExchange exchange, String bucket, Map<String, String> query) throws IOException {
+        String prefix = query.getOrDefault("prefix", "");
+        String delimiter = query.getOrDefault("delimiter", "");
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+        boolean urlEncoding = "url".equals(query.get("encoding-type"));
+        String token = query.get("continuation-token");
+
+        // Tokens remember where the previous page stopped: after a key ("K"), or after a whole common prefix ("P")
+        String startAfter = query.getOrDefault("start-after", "");
+        String skipPrefix = null;
+        if (token != null) {
+            String marker = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            startAfter = marker.substring(1);
+            skipPrefix = marker.charAt(0) == 'P' ? startAfter : null;
+        }
+
+        ConcurrentSkipListMap<String, StoredObject> objects = bucket(bucket);
+        NavigableMap<String, StoredObject> candidates = startAfter.compareTo(prefix) < 0
+                ? objects.tailMap(prefix, true)
+                : objects.tailMap(startAfter, false);
+        List<Map.Entry<String, StoredObject>> contents = new ArrayList<>();
+        List<String> commonPrefixes = new ArrayList<>();
+        String lastReturned = null;
+        String nextMarker = null;
+        boolean truncated = false;
+
+        for (Map.Entry<String, StoredObject> entry : candidates.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break; // keys are sorted, so nothing later can match
+            }
+            if (skipPrefix != null && key.startsWith(skipPrefix)) {
+                continue; // still inside the common prefix the previous page ended with
+            }
+
+            String commonPrefix = null;
+            if (!delimiter.isEmpty()) {
+                int index = key.indexOf(delimiter, prefix.length());
+                if (index >= 0) {
+                    commonPrefix = key.substring(0, index + delimiter.length());
+                }
+            }
+            if (commonPrefix != null && commonPrefix.equals(lastReturned)) {
+                continue;
+            }
+            if (contents.size() + commonPrefixes.size() >= maxKeys) {
+                truncated = true;
+                break;
+            }
+            if (commonPrefix != null) {
+                commonPrefixes.add(commonPrefix);
+                lastReturned = commonPrefix;
+                nextMarker = "P" + commonPrefix;
+            } else {
+                contents.add(entry);
+                lastReturned = key;
+                nextMarker = "K" + key;
+            }
+        }
+
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"" + S3_NAMESPACE + "\">");
+        element(xml, "Name", bucket);
+        element(xml, "Prefix", encode(prefix, urlEncoding));
+        if (!delimiter.isEmpty()) {
+            element(xml, "Delimiter", encode(delimiter, urlEncoding));
+        }
+        element(xml, "MaxKeys", Integer.toString(maxKeys));
+        element(xml, "KeyCount", Integer.toString(contents.size() + commonPrefixes.size()));
+        if (urlEncoding) {
+            element(xml, "EncodingType", "url");
+        }
+        if (token != null) {
+            element(xml, "ContinuationToken", token);
+        }
+        element(xml, "IsTruncated", Boolean.toString(truncated));
+        if (truncated) {
+            element(xml, "NextContinuationToken",
+                    Base64.getUrlEncoder().withoutPadding().encodeToString(nextMarker.getBytes(StandardCharsets.UTF_8)));
+        }
+        for (Map.Entry<String, StoredObject> entry : contents) {
+            StoredObject object = entry.getValue();
+            xml.append("<Contents>");
+            element(xml, "Key", encode(entry.getKey(), urlEncoding));
+            element(xml, "LastModified", ISO_8601.format(object.lastModified()));
+            element(xml, "ETag", quote(object.etag()));
+            element(xml, "Size", Integer.toString(object.data().length));
+            element(xml, "StorageClass", "STANDARD");
+            xml.append("</Contents>");
+        }
+        for (String commonPrefix : commonPrefixes) {
+            xml.append("<CommonPrefixes>");
+            element(xml, "Prefix", encode(commonPrefix, urlEncoding));
+            xml.append("</CommonPrefixes>");
+        }
+        xml.append("</ListBucketResult>");
+        sendXml(exchange, 200, xml.toString());
+    }
+
+    private void deleteObjects(HttpExchange exchange, String bucket, String path) throws IOException {
+        Document request = parseXml(exchange.getRequestBody().readAllBytes());
+        boolean quiet = "true".equalsIgnoreCase(text(request.getDocumentElement(), "Quiet"));
+        Map<String, StoredObject> objects = bucket(bucket);
+
+        StringBuilder xml = new StringBuilder("<DeleteResult xmlns=\"" + S3_NAMESPACE + "\">");
+        NodeList entries = request.getElementsByTagName("Object");
+        for (int i = 0; i < entries.getLength(); i++) {
+            String key = text((Element) entries.item(i), "Key");
+            objects.remove(key);
+            if (!quiet) {
+                xml.append("<Deleted>");
+                element(xml, "Key", key);
+                xml.append("</Deleted>");
+            }
+        }
+        xml.append("</DeleteResult>");
+        sendXml(exchange, 200, xml.toString());
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Object operations
+    // ---------------------------------------------------------------------------------------------
+
+    private void handleObject(HttpExchange exchange, String method, String bucket, String key,
+                              Map<String, String> query, String path) throws IOException {
+        if (!buckets.containsKey(bucket)) {
+            drain(exchange);
+            sendError(exchange, 404, "NoSuchBucket", "The specified bucket does not exist", path);
+            return;
+        }
+        if (query.containsKey("uploads") || query.containsKey("uploadId")) {
+            handleMultipart(exchange, method, bucket, key, query, path);
+            return;
+        }
+
+        switch (method) {
+            case "PUT" -> {
+                String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+                if (copySource != null) {
+                    drain(exchange);
+                    copyObject(exchange, bucket, key, copySource, path);
+                } else {
+                    StoredObject object = store(readBody(exchange), exchange.getRequestHeaders().getFirst("Content-Type"),
+                            storedHeaders(exchange.getRequestHeaders()));
+                    bucket(bucket).put(key, object);
+                    exchange.getResponseHeaders().set("ETag", quote(object.etag()));
+                    send(exchange, 200, null, null);
+                }
+            }
+            case "HEAD", "GET" -> getObject(exchange, method, bucket, key, query, path);
+            case "DELETE" -> {
+                bucket(bucket).remove(key);
+                send(exchange, 204, null, null);
+            }
+            default -> sendError(exchange, 405, "MethodNotAllowed", "Unsupported method " + method, path);
+        }
+    }
+
+    private void getObject(HttpExchange exchange, String method, String bucket, String key,
+                           Map<String, String> query, String path) throws IOException {
+        StoredObject object = bucket(bucket).get(key);
+        if (object == null) {
+            sendError(exchange, 404, "NoSuchKey", "The specified key does not exist.", path);
+            return;
+        }
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch != null && !matchesEtag(ifMatch, object.etag())) {
+            sendError(exchange, 412, "PreconditionFailed", "At least one of the pre-conditions you specified did not hold", path);
+            return;
+        }
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", quote(object.etag()));
+        headers.set("Last-Modified", RFC_822.format(object.lastModified()));
+        headers.set("Accept-Ranges", "bytes");
+        object.headers().forEach(headers::set);
+        headers.set("Content-Type", query.getOrDefault("response-content-type",
+                object.contentType() != null ? object.contentType() : "application/octet-stream"));
+        if (query.containsKey("response-content-disposition")) {
+            headers.set("Content-Disposition", query.get("response-content-disposition"));
+        }
+
+        byte[] data = object.data();
+        int status = 200;
+        int from = 0;
+        int to = data.length - 1;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=") && data.length > 0) {
+            int[] bounds = parseRange(range.substring("bytes=".length()), data.length);
+            if (bounds == null) {
+                headers.set("Content-Range", "bytes */" + data.length);
+                sendError(exchange, 416, "InvalidRange", "The requested range is not satisfiable", path);
+                return;
+            }
+            from = bounds[0];
+            to = bounds[1];
+            status = 206;
+            headers.set("Content-Range", "bytes " + from + "-" + to + "/" + data.length);
+        }
+
+        byte[] body = Arrays.copyOfRange(data, from, to + 1);
+        if (method.equals("HEAD")) {
+            headers.set("Content-Length", Integer.toString(body.length));
+            sendHeadersOnly(exchange, status);
+        } else {
+            send(exchange, status, body, null);
+        }
+    }
+
+    private void copyObject(HttpExchange exchange, String bucket, String key, String copySource, String path)
+            throws IOException {
+        StoredObject source = resolveCopySource(copySource);
+        if (source == null) {
+            sendError(exchange, 404, "NoSuchKey", "The specified copy source does not exist.", path);
+            return;
+        }
+        boolean replace = "REPLACE".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("x-amz-metadata-directive"));
+        StoredObject copy = replace
+                ? new StoredObject(source.data(), source.etag(), exchange.getRequestHeaders().getFirst("Content-Type"),
+                        Instant.now(), storedHeaders(exchange.getRequestHeaders()))
+                : new StoredObject(source.data(), source.etag(), source.contentType(), Instant.now(), source.headers());
+        bucket(bucket).put(key, copy);
+        sendXml(exchange, 200, "<CopyObjectResult xmlns=\"" + S3_NAMESPACE + "\">"
+                + "<LastModified>" + ISO_8601.format(copy.lastModified()) + "</LastModified>"
+                + "<ETag>" + escape(quote(copy.etag())) + "</ETag></CopyObjectResult>");
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Multipart upload and part copy
+    // ---------------------------------------------------------------------------------------------
+
+    private void handleMultipart(HttpExchange exchange, String method, String bucket, String key,
+                                 Map<String, String> query, String path) throws IOException {
+        if (method.equals("POST") && query.containsKey("uploads")) {
+            drain(exchange);
+            String uploadId = UUID.randomUUID().toString();
+            uploads.put(uploadId, new MultipartUpload(bucket, key, exchange.getRequestHeaders().getFirst("Content-Type"),
+                    storedHeaders(exchange.getRequestHeaders()), new ConcurrentSkipListMap<>()));
+            StringBuilder xml = new StringBuilder("<InitiateMultipartUploadResult xmlns=\"" + S3_NAMESPACE + "\">");
+            element(xml, "Bucket", bucket);
+            element(xml, "Key", key);
+            element(xml, "UploadId", uploadId);
+            xml.append("</InitiateMultipartUploadResult>");
+            sendXml(exchange, 200, xml.toString());
+            return;
+        }
+
+        MultipartUpload upload = uploads.get(query.get("uploadId"));
+        if (upload == null || !upload.bucket().equals(bucket) || !upload.key().equals(key)) {
+            drain(exchange);
+            sendError(exchange, 404, "NoSuchUpload", "The specified multipart upload does not exist.", path);
+            return;
+        }
+
+        switch (method) {
+            case "PUT" -> uploadPart(exchange, upload, Integer.parseInt(query.get("partNumber")), path);
+            case "POST" -> completeMultipartUpload(exchange, query.get("uploadId"), upload, path);
+            case "DELETE" -> {
+                uploads.remove(query.get("uploadId"));
+                send(exchange, 204, null, null);
+            }
+            default -> sendError(exchange, 405, "MethodNotAllowed", "Unsupported method " + method, path);
+        }
+    }
+
+    private void uploadPart(HttpExchange exchange, MultipartUpload upload, int partNumber, String path)
+            throws IOException {
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        if (copySource == null) {
+            StoredObject part = store(readBody(exchange), null, Map.of());
+            upload.parts().put(partNumber, part);
+            exchange.getResponseHeaders().set("ETag", quote(part.etag()));
+            send(exchange, 200, null, null);
+            return;
+        }
+
+        drain(exchange);
+        StoredObject source = resolveCopySource(copySource);
+        if (source == null) {
+            sendError(exchange, 404, "NoSuchKey", "The specified copy source does not exist.", path);
+            return;
+        }
+        byte[] data = source.data();
+        String range = exchange.getRequestHeaders().getFirst("x-amz-copy-source-range");
+        if (range != null && range.startsWith("bytes=")) {
+            int[] bounds = parseRange(range.substring("bytes=".length()), data.length);
+            if (bounds == null) {
+                sendError(exchange, 416, "InvalidRange", "The requested range is not satisfiable", path);
+                return;
+            }
+            data = Arrays.copyOfRange(data, bounds[0], bounds[1] + 1);
+        }
+        StoredObject part = store(data, null, Map.of());
+        upload.parts().put(partNumber, part);
+        sendXml(exchange, 200, "<CopyPartResult xmlns=\"" + S3_NAMESPACE + "\">"
+                + "<LastModified>" + ISO_8601.format(part.lastModified()) + "</LastModified>"
+                + "<ETag>" + escape(quote(part.etag())) + "</ETag></CopyPartResult>");
+    }
+
+    private void completeMultipartUpload(HttpExchange exchange, String uploadId, MultipartUpload upload, String path)
+            throws IOException {
+        Document request = parseXml(exchange.getRequestBody().readAllBytes());
+        NodeList partElements = request.getElementsByTagName("Part");
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ByteArrayOutputStream partDigests = new ByteArrayOutputStream();
+        for (int i = 0; i < partElements.getLength(); i++) {
+            Element partElement = (Element) partElements.item(i);
+            StoredObject part = upload.parts().get(Integer.parseInt(text(partElement, "PartNumber")));
+            if (part == null || !part.etag().equals(unquote(text(partElement, "ETag")))) {
+                sendError(exchange, 400, "InvalidPart", "One or more of the specified parts could not be found.", path);
+                return;
+            }
+            content.write(part.data());
+            partDigests.write(HexFormat.of().parseHex(part.etag()));
+        }
+
+        // Multipart ETags are the digest of the part digests plus the part count, as in S3
+        String etag = md5Hex(partDigests.toByteArray()) + "-" + partElements.getLength();
+        bucket(upload.bucket()).put(upload.key(),
+                new StoredObject(content.toByteArray(), etag, upload.contentType(), Instant.now(), upload.headers()));
+        uploads.remove(uploadId);
+
+        StringBuilder xml = new StringBuilder("<CompleteMultipartUploadResult xmlns=\"" + S3_NAMESPACE + "\">");
+        element(xml, "Location", getEndpoint() + "/" + upload.bucket() + "/" + upload.key());
+        element(xml, "Bucket", upload.bucket());
+        element(xml, "Key", upload.key());
+        element(xml, "ETag", quote(etag));
+        xml.append("</CompleteMultipartUploadResult>");
+        sendXml(exchange, 200, xml.toString());
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Helpers
+    // ---------------------------------------------------------------------------------------------
+
+    private ConcurrentSkipListMap<String, StoredObject> bucket(String bucket) {
+        ConcurrentSkipListMap<String, StoredObject> objects = buckets.get(bucket);
+        if (objects == null) {
+            throw new NoSuchBucketException(bucket);
+        }
+        return objects;
+    }
+
+    private StoredObject resolveCopySource(String copySource) {
+        String source = URLDecoder.decode(copySource, StandardCharsets.UTF_8);
+        int versionIndex = source.indexOf("?versionId=");
+        if (versionIndex >= 0) {
+            source = source.substring(0, versionIndex);
+        }
+        if (source.startsWith("/")) {
+            source = source.substring(1);
+        }
+        int slash = source.indexOf('/');
+        if (slash < 0) {
+            return null;
+        }
+        Map<String, StoredObject> objects = buckets.get(source.substring(0, slash));
+        return objects != null ? objects.get(source.substring(slash + 1)) : null;
+    }
+
+    private static StoredObject store(byte[] data, String contentType, Map<String, String> headers) {
+        return new StoredObject(data, md5Hex(data), contentType, Instant.now(), headers);
+    }
+
+    /**
+     * Picks the headers S3 would store with an object from a PUT, copy or multipart initiate request.
+     */
+    private static Map<String, String> storedHeaders(Headers request) {
+        Map<String, String> stored = new TreeMap<>();
+        request.forEach((name, values) -> {
+            String lowerName = name.toLowerCase(Locale.ROOT);
+            String value = values.get(0);
+            if (lowerName.equals("content-encoding")) {
+                // aws-chunked only describes how the request body was sent
+                value = Arrays.stream(value.split(","))
+                        .map(String::trim)
+                        .filter(encoding -> !encoding.equalsIgnoreCase("aws-chunked"))
+                        .collect(Collectors.joining(","));
+            }
+            if (!value.isEmpty() && (lowerName.startsWith("x-amz-meta-") || STORED_HEADERS.contains(lowerName))) {
+                stored.put(lowerName, value);
+            }
+        });
+        return stored;
+    }
+
+    /**
+     * Reads a request body, undoing the SDK's signed "aws-chunked" encoding if it was used.
+     */
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        String contentSha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        boolean awsChunked = (contentSha != null && contentSha.startsWith("STREAMING-"))
+                || (contentEncoding != null && contentEncoding.contains("aws-chunked"));
+        return awsChunked ? decodeAwsChunked(body) : body;
+    }
+
+    /**
+     * Decodes {@code <hex-size>;chunk-signature=...\r\n<data>\r\n} chunks up to the final zero-length chunk.
+     */
+    private static byte[] decodeAwsChunked(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length);
+        int position = 0;
+        while (position < body.length) {
+            int lineEnd = indexOfCrlf(body, position);
+            if (lineEnd < 0) {
+                throw new IllegalArgumentException("Malformed aws-chunked body");
+            }
+            String header = new String(body, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int semicolon = header.indexOf(';');
+            int size = Integer.parseInt(semicolon >= 0 ? header.substring(0, semicolon) : header, 16);
+            if (size == 0) {
+                break;
+            }
+            int dataStart = lineEnd + 2;
+            out.write(body, dataStart, size);
+            position = dataStart + size + 2; // skip the chunk's trailing CRLF
+        }
+        return out.toByteArray();
+    }
+
+    private static int indexOfCrlf(byte[] data, int from) {
+        for (int i = from; i < data.length - 1; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses "first-last", "first-" or "-suffixLength" into inclusive bounds, or null if malformed or
+     * not satisfiable.
+     */
+    private static int[] parseRange(String spec, int length) {
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.contains(",")) {
+            return null;
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        long from;
+        long to;
+        try {
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                from = Math.max(0, length - suffix);
+                to = length - 1;
+            } else {
+                from = Long.parseLong(first);
+                to = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (from < 0 || from >= length || from > to) {
+            return null;
+        }
+        return new int[]{(int) from, (int) to};
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals >= 0 ? parameter.substring(0, equals) : parameter;
+            String value = equals >= 0 ? parameter.substring(equals + 1) : "";
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static Document parseXml(byte[] xml) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Malformed XML request body", e);
+        }
+    }
+
+    private static String text(Element parent, String tagName) {
+        NodeList nodes = parent.getElementsByTagName(tagName);
+        return nodes.getLength() > 0 ? nodes.item(0).getTextContent().trim() : null;
+    }
+
+    private static void element(StringBuilder xml, String name, String value) {
+        xml.append('<').append(name).append('>').append(escape(value)).append("</").append(name).append('>');
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String encode(String value, boolean urlEncoding) {
+        return urlEncoding ? URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20") : value;
+    }
+
+    /**
+     * Whether an If-Match list ("*", or ETags with or without quotes) matches the object's ETag.
+     */
+    private static boolean matchesEtag(String ifMatch, String etag) {
+        return Arrays.stream(ifMatch.split(","))
+                .map(candidate -> unquote(candidate.trim()))
+                .anyMatch(candidate -> candidate.equals("*") || candidate.equals(etag));
+    }
+
+    private static String quote(String etag) {
+        return "\"" + etag + "\"";
+    }
+
+    private static String unquote(String etag) {
+        return etag != null ? etag.replace("\"", "") : null;
+    }
+
+    private static String md5Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the request body to its end. Left open, so draining twice is harmless; the exchange
+     * closes it.
+     */
+    private static void drain(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+    }
+
+    private void sendXml(HttpExchange exchange, int status, String xml) throws IOException {
+        send(exchange, status, (XML_HEADER + xml).getBytes(StandardCharsets.UTF_8), "application/xml");
+    }
+
+    private void sendError(HttpExchange exchange, int status, String code, String message, String resource)
+            throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            send(exchange, status, null, null);
+            return;
+        }
+        StringBuilder xml = new StringBuilder("<Error>");
+        element(xml, "Code", code);
+        element(xml, "Message", message);
+        element(xml, "Resource", resource);
+        element(xml, "RequestId", "stub");
+        xml.append("</Error>");
+        sendXml(exchange, status, xml.toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body, String contentType) throws IOException {
+        if (contentType != null) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+        }
+        exchange.getResponseHeaders().set("x-amz-request-id", "stub");
+        if (body == null || body.length == 0 || exchange.getRequestMethod().equals("HEAD")) {
+            sendHeadersOnly(exchange, status);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Sends a response without a body. The request body is drained first even when there is none:
+     * the server drops the connection of an exchange whose request body was not read to its end,
+     * which broke keep-alive clients after every HEAD.
+     */
+    private static void sendHeadersOnly(HttpExchange exchange, int status) throws IOException {
+        drain(exchange);
+        exchange.sendResponseHeaders(status, -1);
+    }
+}
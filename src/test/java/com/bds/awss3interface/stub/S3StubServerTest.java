@@ -0,0 +1,336 @@
+package com.bds.awss3interface.stub;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the stub with the AWS SDK client the application uses, so the integration and load tests
+ * can rely on it behaving like S3 for the calls they make.
+ */
+public class S3StubServerTest {
+
+    private static final String BUCKET = "stub-test";
+
+    private static S3StubServer stub;
+    private static AmazonS3 s3;
+    private static AmazonS3 s3WithoutRetries;
+
+    /**
+     * The x-amz-content-sha256 header of the last signed request per key, to see how the SDK sent a body.
+     */
+    private static final Map<String, String> contentSha256 = new ConcurrentHashMap<>();
+
+    @BeforeAll
+    static void startStub() {
+        stub = S3StubServer.start();
+        s3 = client(new ClientConfiguration());
+        s3WithoutRetries = client(new ClientConfiguration().withMaxErrorRetry(0));
+        s3.createBucket(BUCKET);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        s3.shutdown();
+        s3WithoutRetries.shutdown();
+        stub.close();
+    }
+
+    @AfterEach
+    void resetStub() {
+        stub.reset();
+    }
+
+    @Test
+    public void rangeGetReturnsRequestedBytes() throws IOException {
+        byte[] content = bytes(100);
+        stub.putObject(BUCKET, "range.bin", content, "application/octet-stream");
+
+        try (S3Object object = s3.getObject(new GetObjectRequest(BUCKET, "range.bin").withRange(10, 19))) {
+            assertArrayEquals(Arrays.copyOfRange(content, 10, 20), object.getObjectContent().readAllBytes());
+            assertEquals(10, object.getObjectMetadata().getContentLength());
+            assertArrayEquals(new Long[]{10L, 19L}, object.getObjectMetadata().getContentRange());
+        }
+        try (S3Object object = s3.getObject(new GetObjectRequest(BUCKET, "range.bin").withRange(90))) {
+            assertArrayEquals(Arrays.copyOfRange(content, 90, 100), object.getObjectContent().readAllBytes());
+        }
+
+        AmazonS3Exception error = assertThrows(AmazonS3Exception.class,
+                () -> s3.getObject(new GetObjectRequest(BUCKET, "range.bin").withRange(200, 300)));
+        assertEquals(416, error.getStatusCode());
+        assertEquals("InvalidRange", error.getErrorCode());
+    }
+
+    @Test
+    public void malformedRangeAnswersInvalidRange() throws IOException {
+        stub.putObject(BUCKET, "range.bin", bytes(100), "application/octet-stream");
+
+        HttpURLConnection connection = (HttpURLConnection) URI.create(stub.getEndpoint() + "/" + BUCKET + "/range.bin")
+                .toURL().openConnection();
+        connection.setRequestProperty("Range", "bytes=abc-");
+        assertEquals(416, connection.getResponseCode());
+        connection.disconnect();
+
+        stub.putObject(BUCKET, "source.bin", bytes(100), "application/octet-stream");
+        String uploadId = s3.initiateMultipartUpload(new InitiateMultipartUploadRequest(BUCKET, "copied.bin"))
+                .getUploadId();
+        connection = (HttpURLConnection) URI.create(stub.getEndpoint() + "/" + BUCKET + "/copied.bin?partNumber=1&uploadId="
+                + uploadId).toURL().openConnection();
+        connection.setRequestMethod("PUT");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("x-amz-copy-source", BUCKET + "/source.bin");
+        connection.setRequestProperty("x-amz-copy-source-range", "bytes=0-x");
+        connection.getOutputStream().close();
+        assertEquals(416, connection.getResponseCode());
+        connection.disconnect();
+    }
+
+    @Test
+    public void objectsKeepTheirMetadata() {
+        ObjectMetadata metadata = contentType("text/plain");
+        metadata.setCacheControl("max-age=60");
+        metadata.setContentDisposition("attachment; filename=\"report.txt\"");
+        metadata.setContentLanguage("en");
+        metadata.addUserMetadata("owner", "qteam");
+        metadata.setContentLength(5);
+        s3.putObject(new PutObjectRequest(BUCKET, "put.txt", new ByteArrayInputStream(bytes(5)), metadata));
+        assertMetadata(s3.getObjectMetadata(BUCKET, "put.txt"));
+        try (S3Object object = s3.getObject(BUCKET, "put.txt")) {
+            assertMetadata(object.getObjectMetadata());
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+
+        s3.copyObject(BUCKET, "put.txt", BUCKET, "copied.txt");
+        assertMetadata(s3.getObjectMetadata(BUCKET, "copied.txt"));
+
+        ObjectMetadata replacement = contentType("text/csv");
+        replacement.setCacheControl("no-cache");
+        s3.copyObject(new CopyObjectRequest(BUCKET, "put.txt", BUCKET, "replaced.txt").withNewObjectMetadata(replacement));
+        ObjectMetadata replaced = s3.getObjectMetadata(BUCKET, "replaced.txt");
+        assertEquals("text/csv", replaced.getContentType());
+        assertEquals("no-cache", replaced.getCacheControl());
+        assertNull(replaced.getContentDisposition(), "REPLACE drops the source's headers");
+        assertTrue(replaced.getUserMetadata().isEmpty());
+
+        ObjectMetadata multipartMetadata = contentType("text/plain");
+        multipartMetadata.setCacheControl("max-age=60");
+        multipartMetadata.setContentDisposition("attachment; filename=\"report.txt\"");
+        multipartMetadata.setContentLanguage("en");
+        multipartMetadata.addUserMetadata("owner", "qteam");
+        String uploadId = s3.initiateMultipartUpload(new InitiateMultipartUploadRequest(BUCKET, "multipart.bin",
+                multipartMetadata)).getUploadId();
+        s3.completeMultipartUpload(new CompleteMultipartUploadRequest(BUCKET, "multipart.bin", uploadId,
+                List.of(uploadPart(uploadId, 1, bytes(5)))));
+        assertMetadata(s3.getObjectMetadata(BUCKET, "multipart.bin"));
+    }
+
+    @Test
+    public void multipartUploadAssemblesPartsInOrder() throws IOException {
+        byte[] first = bytes(6000);
+        byte[] second = bytes(3000);
+        String uploadId = s3.initiateMultipartUpload(new InitiateMultipartUploadRequest(BUCKET, "multipart.bin",
+                contentType("application/octet-stream"))).getUploadId();
+
+        List<PartETag> etags = new ArrayList<>();
+        // Uploaded out of order; completion must still assemble them by part number
+        etags.add(uploadPart(uploadId, 2, second));
+        etags.add(0, uploadPart(uploadId, 1, first));
+        CompleteMultipartUploadResult result = s3.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(BUCKET, "multipart.bin", uploadId, etags));
+
+        assertTrue(result.getETag().endsWith("-2"), "Multipart ETags end with the part count: " + result.getETag());
+        byte[] expected = new byte[first.length + second.length];
+        System.arraycopy(first, 0, expected, 0, first.length);
+        System.arraycopy(second, 0, expected, first.length, second.length);
+        assertArrayEquals(expected, stub.getObject(BUCKET, "multipart.bin"));
+        ObjectMetadata metadata = s3.getObjectMetadata(BUCKET, "multipart.bin");
+        assertEquals(expected.length, metadata.getContentLength());
+        assertEquals("application/octet-stream", metadata.getContentType());
+
+        AmazonS3Exception error = assertThrows(AmazonS3Exception.class, () -> s3.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(BUCKET, "multipart.bin", uploadId, etags)));
+        assertEquals("NoSuchUpload", error.getErrorCode(), "A completed upload is gone");
+    }
+
+    @Test
+    public void sdkUploadsAreDecodedFromAwsChunkedEncoding() {
+        byte[] content = bytes(200_000); // spans several signed chunks
+        ObjectMetadata metadata = contentType("application/octet-stream");
+        metadata.setContentLength(content.length);
+        s3.putObject(new PutObjectRequest(BUCKET, "chunked.bin", new ByteArrayInputStream(content), metadata));
+
+        assertTrue(contentSha256.get("chunked.bin").startsWith("STREAMING-"),
+                "The SDK should have sent the body aws-chunked over plain HTTP");
+        assertArrayEquals(content, stub.getObject(BUCKET, "chunked.bin"));
+    }
+
+    @Test
+    public void rawAwsChunkedBodyIsDecoded() throws IOException {
+        String body = "5;chunk-signature=abc\r\nhello\r\n"
+                + "6;chunk-signature=def\r\n world\r\n"
+                + "0;chunk-signature=fff\r\n\r\n";
+        HttpURLConnection connection = (HttpURLConnection) URI.create(stub.getEndpoint() + "/" + BUCKET + "/raw.txt")
+                .toURL().openConnection();
+        connection.setRequestMethod("PUT");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("x-amz-content-sha256", "STREAMING-AWS4-HMAC-SHA256-PAYLOAD");
+        connection.setRequestProperty("x-amz-decoded-content-length", "11");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.US_ASCII));
+        }
+        assertEquals(200, connection.getResponseCode());
+
+        assertEquals("hello world", new String(stub.getObject(BUCKET, "raw.txt"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void injectedFailuresAnswerSlowDownForTargetedOperationOnly() {
+        stub.putObject(BUCKET, "faulty.txt", bytes(10), "text/plain");
+        stub.setFailureRate(S3StubServer.Operation.HEAD, 1.0);
+
+        AmazonS3Exception error = assertThrows(AmazonS3Exception.class,
+                () -> s3WithoutRetries.getObjectMetadata(BUCKET, "faulty.txt"));
+        assertEquals(503, error.getStatusCode());
+        assertEquals(1, stub.getInjectedFailures());
+
+        // The SDK retries 503s; every attempt is failed and counted
+        assertThrows(AmazonS3Exception.class, () -> s3.getObjectMetadata(BUCKET, "faulty.txt"));
+        assertEquals(2 + ClientConfiguration.DEFAULT_RETRY_POLICY.getMaxErrorRetry(), stub.getInjectedFailures());
+
+        assertArrayEquals(bytes(10), readAll("faulty.txt"), "Other operations are unaffected");
+
+        stub.reset();
+        assertEquals(10, s3WithoutRetries.getObjectMetadata(BUCKET, "faulty.txt").getContentLength());
+        assertEquals(1, stub.getRequestCount(S3StubServer.Operation.HEAD));
+    }
+
+    @Test
+    public void partialFailureRateFailsSomeRequests() {
+        stub.putObject(BUCKET, "flaky.txt", bytes(10), "text/plain");
+        stub.setFailureRate(S3StubServer.Operation.HEAD, 0.5);
+
+        int failed = 0;
+        for (int i = 0; i < 200; i++) {
+            try {
+                s3WithoutRetries.getObjectMetadata(BUCKET, "flaky.txt");
+            } catch (AmazonS3Exception e) {
+                failed++;
+            }
+        }
+        assertEquals(failed, stub.getInjectedFailures());
+        assertTrue(failed > 50 && failed < 150, "Expected about half of 200 requests to fail, got " + failed);
+    }
+
+    @Test
+    public void injectedLatencyDelaysTargetedOperation() {
+        stub.putObject(BUCKET, "slow.txt", bytes(10), "text/plain");
+        stub.setLatency(S3StubServer.Operation.GET, Duration.ofMillis(300), Duration.ZERO);
+
+        long start = System.nanoTime();
+        assertArrayEquals(bytes(10), readAll("slow.txt"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 300, "GET should be delayed");
+        assertEquals(1, stub.getRequestCount(S3StubServer.Operation.GET));
+    }
+
+    @Test
+    public void unknownBucketAnswersNoSuchBucket() {
+        AmazonS3Exception error = assertThrows(AmazonS3Exception.class,
+                () -> s3.deleteObjects(new DeleteObjectsRequest("no-such-bucket").withKeys("a.txt")));
+        assertEquals(404, error.getStatusCode());
+        assertEquals("NoSuchBucket", error.getErrorCode());
+
+        error = assertThrows(AmazonS3Exception.class,
+                () -> s3.listObjectsV2(new ListObjectsV2Request().withBucketName("no-such-bucket")));
+        assertEquals("NoSuchBucket", error.getErrorCode());
+        error = assertThrows(AmazonS3Exception.class, () -> s3.putObject("no-such-bucket", "a.txt", "content"));
+        assertEquals("NoSuchBucket", error.getErrorCode());
+    }
+
+    private PartETag uploadPart(String uploadId, int partNumber, byte[] data) {
+        return s3.uploadPart(new UploadPartRequest()
+                .withBucketName(BUCKET)
+                .withKey("multipart.bin")
+                .withUploadId(uploadId)
+                .withPartNumber(partNumber)
+                .withPartSize(data.length)
+                .withInputStream(new ByteArrayInputStream(data))).getPartETag();
+    }
+
+    private static void assertMetadata(ObjectMetadata metadata) {
+        assertEquals("text/plain", metadata.getContentType());
+        assertEquals("max-age=60", metadata.getCacheControl());
+        assertEquals("attachment; filename=\"report.txt\"", metadata.getContentDisposition());
+        assertEquals("en", metadata.getContentLanguage());
+        assertNull(metadata.getContentEncoding(), "aws-chunked is not stored");
+        assertEquals(Map.of("owner", "qteam"), metadata.getUserMetadata());
+    }
+
+    private byte[] readAll(String key) {
+        try (S3Object object = s3.getObject(BUCKET, key); InputStream in = object.getObjectContent()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static ObjectMetadata contentType(String contentType) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+        return metadata;
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31 + 7);
+        }
+        return data;
+    }
+
+    private static AmazonS3 client(ClientConfiguration configuration) {
+        return AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(stub.getEndpoint(), "us-east-1"))
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("stub", "stub")))
+                .withPathStyleAccessEnabled(true)
+                .withClientConfiguration(configuration)
+                .withRequestHandlers(new RequestHandler2() {
+                    @Override
+                    public void afterResponse(Request<?> request, Response<?> response) {
+                        String sha = request.getHeaders().get("x-amz-content-sha256");
+                        String path = request.getResourcePath();
+                        if (sha != null && path != null) {
+                            contentSha256.put(path.substring(path.lastIndexOf('/') + 1), sha);
+                        }
+                    }
+                })
+                .build();
+    }
+}